@@ -0,0 +1,313 @@
+package data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of changes made on top of a JSON snapshot file.
+ * <p>
+ * Each record is framed as {@code [length][payload][crc32]}, so a torn write at the tail is detected and
+ * dropped on recovery. The payload starts with the record format version; a log written in another format is
+ * refused rather than misread. Once the log grows past a threshold it is rotated and folded into a fresh snapshot on
+ * a background thread. Files next to the snapshot:
+ * <ul>
+ *     <li>{@code <snapshot>.journal} - the live log</li>
+ *     <li>{@code <snapshot>.journal.compacting} - the rotated log being folded in</li>
+ *     <li>{@code <snapshot>.compacting} - the new snapshot; it exists until it atomically replaces the old one</li>
+ * </ul>
+ */
+public class ChangeJournal<T> {
+    public enum Operation { ADD, UPDATE, DELETE }
+
+    // Unversioned records began with the operation (0-2), so versions start at 3.
+    // Bump it whenever a codec or the meaning of the keys changes.
+    static final byte RECORD_VERSION = 4; // 4: city records hold only the changed fields
+
+    public interface RecordCodec<T> {
+        void write(DataOutput out, T value) throws IOException;
+        T read(DataInput in) throws IOException;
+    }
+
+    public interface Replayer<T> {
+        void apply(Operation operation, String key, T value);
+    }
+
+    public interface SnapshotWriter {
+        void writeTo(File file) throws IOException;
+    }
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final Path compactingJournalPath;
+    private final Path compactingSnapshotPath;
+    private final RecordCodec<T> codec;
+    private final long compactionThresholdBytes;
+    private final Object pendingLock = new Object();
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+    private final ExecutorService compactor;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private FileChannel channel;
+
+    public ChangeJournal(String snapshotPath, RecordCodec<T> codec, long compactionThresholdBytes) {
+        this.snapshotPath = Paths.get(snapshotPath);
+        this.journalPath = Paths.get(snapshotPath + ".journal");
+        this.compactingJournalPath = Paths.get(snapshotPath + ".journal.compacting");
+        this.compactingSnapshotPath = Paths.get(snapshotPath + ".compacting");
+        this.codec = codec;
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Brings the log back to a consistent state after a crash and replays it. Call once, after the snapshot
+     * has been loaded and before any new records are added.
+     */
+    public void recover(Replayer<T> replayer) throws IOException {
+        commitLock.lock();
+        try {
+            if (Files.exists(compactingJournalPath)) {
+                if (Files.exists(compactingSnapshotPath)) {
+                    // The new snapshot never replaced the old one: put the rotated records back in front of the live ones
+                    Files.delete(compactingSnapshotPath);
+                    if (Files.exists(journalPath)) {
+                        Files.write(compactingJournalPath, Files.readAllBytes(journalPath), StandardOpenOption.APPEND);
+                    }
+                    Files.move(compactingJournalPath, journalPath, StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    // The snapshot already contains the rotated records
+                    Files.delete(compactingJournalPath);
+                }
+            } else {
+                Files.deleteIfExists(compactingSnapshotPath);
+            }
+
+            long validLength = 0;
+            if (Files.exists(journalPath)) {
+                validLength = replay(Files.readAllBytes(journalPath), replayer);
+            }
+            openChannel();
+            if (channel.size() > validLength) {
+                channel.truncate(validLength); // Drop a torn tail so new records are not appended after garbage
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private long replay(byte[] bytes, Replayer<T> replayer) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        long offset = 0;
+        while (true) {
+            byte[] payload;
+            try {
+                int length = in.readInt();
+                if (length < 0 || length > bytes.length) {
+                    break;
+                }
+                payload = new byte[length];
+                in.readFully(payload);
+                if (in.readInt() != checksum(payload)) {
+                    break;
+                }
+            } catch (EOFException e) {
+                break;
+            }
+            DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+            byte version = record.readByte();
+            if (version != RECORD_VERSION) {
+                throw new IllegalStateException("Error replaying journal: " + journalPath
+                        + " has records of unsupported version " + version + ".");
+            }
+            Operation operation = Operation.values()[record.readByte()];
+            String key = record.readUTF();
+            T value = record.readBoolean() ? codec.read(record) : null;
+            replayer.apply(operation, key, value);
+            offset += Integer.BYTES + payload.length + Integer.BYTES;
+        }
+        return offset;
+    }
+
+    /** Buffers a record. It reaches disk on the next {@link #commit}. */
+    public void record(Operation operation, String key, T value) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream record = new DataOutputStream(buffer);
+            record.writeByte(RECORD_VERSION);
+            record.writeByte(operation.ordinal());
+            record.writeUTF(key);
+            record.writeBoolean(value != null);
+            if (value != null) {
+                codec.write(record, value);
+            }
+            byte[] payload = buffer.toByteArray();
+            synchronized (pendingLock) {
+                DataOutputStream frame = new DataOutputStream(pending);
+                frame.writeInt(payload.length);
+                frame.write(payload);
+                frame.writeInt(checksum(payload));
+            }
+        } catch (IOException e) {
+            // In-memory streams do not fail; surface codec bugs to the caller
+            throw new IllegalStateException("Error encoding journal record: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Appends the buffered records and, once the log has outgrown the threshold, starts a background compaction.
+     * {@code snapshotAtCut} is called with {@code stateLock} held, at the same point the buffered records were
+     * taken, and must return a writer for a deep copy of the owner's state: the writer runs on the compactor
+     * thread while the owner goes on changing its objects.
+     */
+    public void commit(Lock stateLock, Supplier<SnapshotWriter> snapshotAtCut) {
+        commitLock.lock();
+        try {
+            byte[] frames;
+            SnapshotWriter snapshotWriter = null;
+            stateLock.lock();
+            try {
+                frames = drainPending();
+                if (!compacting.get() && channel.size() + frames.length >= compactionThresholdBytes) {
+                    snapshotWriter = snapshotAtCut.get();
+                }
+            } finally {
+                stateLock.unlock();
+            }
+            try {
+                write(frames);
+            } catch (IOException e) {
+                System.err.println("Error appending to journal: " + e.getMessage());
+                requeue(frames);
+                return;
+            }
+            if (snapshotWriter != null) {
+                startCompaction(snapshotWriter);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading journal size: " + e.getMessage());
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private byte[] drainPending() {
+        synchronized (pendingLock) {
+            byte[] frames = pending.toByteArray();
+            pending = new ByteArrayOutputStream();
+            return frames;
+        }
+    }
+
+    private void requeue(byte[] frames) {
+        synchronized (pendingLock) {
+            ByteArrayOutputStream restored = new ByteArrayOutputStream();
+            restored.writeBytes(frames);
+            restored.writeBytes(pending.toByteArray());
+            pending = restored;
+        }
+    }
+
+    private void write(byte[] frames) throws IOException {
+        if (frames.length == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(frames);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    // Called with commitLock held, right after the records up to the cut were appended
+    private void startCompaction(SnapshotWriter snapshotWriter) throws IOException {
+        compacting.set(true);
+        // Create the new snapshot file before rotating, so recovery can tell an unfinished compaction from a finished one
+        Files.deleteIfExists(compactingSnapshotPath);
+        Files.createFile(compactingSnapshotPath);
+        channel.close();
+        Files.move(journalPath, compactingJournalPath);
+        openChannel();
+        compactor.submit(() -> {
+            try {
+                snapshotWriter.writeTo(compactingSnapshotPath.toFile());
+                try (FileChannel snapshot = FileChannel.open(compactingSnapshotPath, StandardOpenOption.WRITE)) {
+                    snapshot.force(true);
+                }
+                Files.move(compactingSnapshotPath, snapshotPath,
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(compactingJournalPath);
+                compacting.set(false);
+            } catch (IOException e) {
+                // Leave the rotated log in place; recovery replays it. No further compactions run in this process.
+                System.err.println("Error compacting journal: " + e.getMessage());
+            }
+        });
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    public long size() {
+        commitLock.lock();
+        try {
+            return channel == null ? 0 : channel.size();
+        } catch (IOException e) {
+            return 0;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    // Waits for a running compaction and releases the log file
+    public void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        commitLock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing journal: " + e.getMessage());
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
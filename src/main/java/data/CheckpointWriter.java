@@ -0,0 +1,60 @@
+package data;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes checkpoints on a background thread, so the simulation only pays for copying its state. Checkpoints are
+ * written in the order they are submitted, each replacing the previous file.
+ */
+public class CheckpointWriter {
+    private final Path path;
+    private final ExecutorService writer;
+    private Future<?> lastWrite;
+
+    public CheckpointWriter(String path) {
+        this.path = Paths.get(path);
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public String getPath() {
+        return path.toString();
+    }
+
+    public synchronized void write(SimulationCheckpoint checkpoint) {
+        lastWrite = writer.submit(() -> {
+            try {
+                checkpoint.write(path);
+            } catch (IOException e) {
+                System.err.println("Error writing checkpoint: " + e.getMessage());
+            }
+        });
+    }
+
+    // Blocks until every submitted checkpoint is on disk
+    public void awaitWrites() {
+        Future<?> pending;
+        synchronized (this) {
+            pending = lastWrite;
+        }
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Error writing checkpoint: " + e.getCause().getMessage());
+        }
+    }
+}
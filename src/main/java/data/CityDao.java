@@ -2,12 +2,44 @@ package data;
 
 import domain.city.City;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface  CityDao {
     void addCity(City city);
     List<City> getAllCities();
     City getCityByName(String name);
+
+    // For callers that only read the city and its residents; stores that copy on write may hand out a shared page
+    default City viewCityByName(String name) {
+        return getCityByName(name);
+    }
     void updateCity(City city);
     void deleteCity(String name);
+
+    // Adds the cities that do not exist yet and updates the others
+    default void upsertCities(Collection<City> cities) {
+        try (UnitOfWork batch = beginUnitOfWork()) {
+            for (City city : cities) {
+                if (getCityByName(city.getName()) == null) {
+                    addCity(city);
+                } else {
+                    updateCity(city);
+                }
+            }
+        }
+    }
+
+    // Changes made until the returned scope is closed are committed together
+    default UnitOfWork beginUnitOfWork() {
+        return this::flush;
+    }
+
+    // Persists any buffered changes; a no-op for stores that write through
+    default void flush() {}
+
+    // Persists any buffered changes and releases the store's files and connections; the store cannot be used afterwards
+    default void close() {
+        flush();
+    }
 }
@@ -0,0 +1,525 @@
+package data;
+
+import domain.person.HealthStatus;
+import domain.person.Person;
+import domain.utils.LongIntIndex;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Person store backed by a binary, column-oriented file, read and written through memory-mapped
+ * {@link MemorySegment}s, so the file is not limited to 2 GB.
+ * <p>
+ * Layout: header ({@code magic, version, count}), the person-name and city-name dictionaries, then one
+ * fixed-width big-endian column per field: person id (long), age (short), health status (byte), infection duration
+ * (short), recovery time (short), city id (int, -1 for none) and name id (int). Loading bulk-copies each column out
+ * of the mapped file into heap arrays, with no parsing per person; the whole population lives on the heap while the
+ * store is open. Changes stay in memory until {@link #flush()}.
+ */
+public class ColumnarPersonDatabase implements PersonDao {
+    private static final int MAGIC = 0x44535043; // "DSPC"
+    private static final int VERSION = 3; // 2 added the id column, 3 widened age to a short
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.BIG_ENDIAN);
+    private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+
+    private final Path filePath;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<String> cities = new ArrayList<>();
+    private final Map<String, Integer> cityIds = new HashMap<>();
+    private long[] idColumn = new long[0];
+    private short[] ageColumn = new short[0];
+    private byte[] statusColumn = new byte[0];
+    private short[] durationColumn = new short[0];
+    private short[] recoveryColumn = new short[0];
+    private int[] cityColumn = new int[0];
+    private int[] nameColumn = new int[0];
+    private final LongIntIndex rows = new LongIntIndex(); // Person id -> row
+    private final UnitOfWorkTracker unitsOfWork = new UnitOfWorkTracker(this::flush);
+    private int size = 0;
+    private boolean loaded = false;
+    private boolean dirty = false;
+
+    public ColumnarPersonDatabase(String filePath) {
+        this.filePath = Paths.get(filePath);
+    }
+
+    // A file that cannot be read is never treated as empty, since the next flush would overwrite it
+    private void ensureLoaded() {
+        lock.lock();
+        try {
+            if (!loaded) {
+                if (Files.exists(filePath)) {
+                    load();
+                }
+                loaded = true;
+            }
+        } catch (IOException | RuntimeException e) {
+            size = 0;
+            rows.clear();
+            dirty = false;
+            throw new IllegalStateException("Error loading persons from columnar file: " + e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void load() throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+             Arena arena = Arena.ofConfined()) {
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            if (file.byteSize() < 3L * Integer.BYTES || file.get(INT, 0) != MAGIC) {
+                throw new IOException(filePath + " is not a columnar person file.");
+            }
+            int version = file.get(INT, Integer.BYTES);
+            if (version < 1 || version > VERSION) {
+                throw new IOException(filePath + " has unsupported version " + version + ".");
+            }
+            int count = file.get(INT, 2L * Integer.BYTES);
+            long offset = 3L * Integer.BYTES;
+            offset = readDictionary(file, offset, names, nameIds);
+            offset = readDictionary(file, offset, cities, cityIds);
+
+            ensureCapacity(count);
+            if (version >= 2) {
+                MemorySegment.copy(file, LONG, offset, idColumn, 0, count);
+                offset += (long) count * Long.BYTES;
+            }
+            if (version >= 3) {
+                MemorySegment.copy(file, SHORT, offset, ageColumn, 0, count);
+                offset += (long) count * Short.BYTES;
+            } else {
+                for (int i = 0; i < count; i++) {
+                    ageColumn[i] = (short) (file.get(BYTE, offset + i) & 0xFF); // Ages were stored as one byte
+                }
+                offset += count;
+            }
+            MemorySegment.copy(file, BYTE, offset, statusColumn, 0, count);
+            offset += count;
+            MemorySegment.copy(file, SHORT, offset, durationColumn, 0, count);
+            offset += (long) count * Short.BYTES;
+            MemorySegment.copy(file, SHORT, offset, recoveryColumn, 0, count);
+            offset += (long) count * Short.BYTES;
+            MemorySegment.copy(file, INT, offset, cityColumn, 0, count);
+            offset += (long) count * Integer.BYTES;
+            MemorySegment.copy(file, INT, offset, nameColumn, 0, count);
+            if (version >= 2) {
+                long maxId = 0;
+                for (int i = 0; i < count; i++) {
+                    maxId = Math.max(maxId, idColumn[i]);
+                }
+                Person.reserveId(maxId); // Keeps newly created people from reusing stored ids
+            } else {
+                for (int i = 0; i < count; i++) {
+                    idColumn[i] = Person.nextId();
+                }
+                dirty = true; // The next flush upgrades the file to the current version
+            }
+            size = count;
+            rebuildRowIndex();
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(filePath + " is truncated.", e);
+        }
+    }
+
+    // Returns the offset after the dictionary
+    private static long readDictionary(MemorySegment file, long offset, List<String> values, Map<String, Integer> ids) {
+        values.clear();
+        ids.clear();
+        int count = file.get(INT, offset);
+        offset += Integer.BYTES;
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[file.get(INT, offset)];
+            offset += Integer.BYTES;
+            MemorySegment.copy(file, BYTE, offset, bytes, 0, bytes.length);
+            offset += bytes.length;
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            ids.put(value, values.size());
+            values.add(value);
+        }
+        return offset;
+    }
+
+    // Returns the offset after the dictionary
+    private static long writeDictionary(MemorySegment file, long offset, List<byte[]> encoded) {
+        file.set(INT, offset, encoded.size());
+        offset += Integer.BYTES;
+        for (byte[] bytes : encoded) {
+            file.set(INT, offset, bytes.length);
+            offset += Integer.BYTES;
+            MemorySegment.copy(bytes, 0, file, BYTE, offset, bytes.length);
+            offset += bytes.length;
+        }
+        return offset;
+    }
+
+    private static List<byte[]> encode(List<String> values) {
+        List<byte[]> encoded = new ArrayList<>(values.size());
+        for (String value : values) {
+            encoded.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return encoded;
+    }
+
+    private static long dictionaryBytes(List<byte[]> encoded) {
+        long bytes = Integer.BYTES;
+        for (byte[] value : encoded) {
+            bytes += Integer.BYTES + value.length;
+        }
+        return bytes;
+    }
+
+    // Writes a new file next to the old one and swaps it in, so a crash never leaves a half-written population
+    private void save() throws IOException {
+        List<byte[]> encodedNames = encode(names);
+        List<byte[]> encodedCities = encode(cities);
+        long length = 3L * Integer.BYTES + dictionaryBytes(encodedNames) + dictionaryBytes(encodedCities)
+                + (long) size * (Long.BYTES + Byte.BYTES + 3 * Short.BYTES + 2 * Integer.BYTES);
+        Path tempPath = Paths.get(filePath + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Arena arena = Arena.ofConfined()) {
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_WRITE, 0, length, arena);
+            file.set(INT, 0, MAGIC);
+            file.set(INT, Integer.BYTES, VERSION);
+            file.set(INT, 2L * Integer.BYTES, size);
+            long offset = 3L * Integer.BYTES;
+            offset = writeDictionary(file, offset, encodedNames);
+            offset = writeDictionary(file, offset, encodedCities);
+            MemorySegment.copy(idColumn, 0, file, LONG, offset, size);
+            offset += (long) size * Long.BYTES;
+            MemorySegment.copy(ageColumn, 0, file, SHORT, offset, size);
+            offset += (long) size * Short.BYTES;
+            MemorySegment.copy(statusColumn, 0, file, BYTE, offset, size);
+            offset += size;
+            MemorySegment.copy(durationColumn, 0, file, SHORT, offset, size);
+            offset += (long) size * Short.BYTES;
+            MemorySegment.copy(recoveryColumn, 0, file, SHORT, offset, size);
+            offset += (long) size * Short.BYTES;
+            MemorySegment.copy(cityColumn, 0, file, INT, offset, size);
+            offset += (long) size * Integer.BYTES;
+            MemorySegment.copy(nameColumn, 0, file, INT, offset, size);
+            file.force();
+        }
+        Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ageColumn.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, Math.max(INITIAL_CAPACITY, ageColumn.length * 2));
+        idColumn = Arrays.copyOf(idColumn, newCapacity);
+        ageColumn = Arrays.copyOf(ageColumn, newCapacity);
+        statusColumn = Arrays.copyOf(statusColumn, newCapacity);
+        durationColumn = Arrays.copyOf(durationColumn, newCapacity);
+        recoveryColumn = Arrays.copyOf(recoveryColumn, newCapacity);
+        cityColumn = Arrays.copyOf(cityColumn, newCapacity);
+        nameColumn = Arrays.copyOf(nameColumn, newCapacity);
+    }
+
+    private static int intern(String value, List<String> values, Map<String, Integer> ids) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = values.size();
+            ids.put(value, id);
+            values.add(value);
+        }
+        return id;
+    }
+
+    private void rebuildRowIndex() {
+        rows.clear();
+        for (int i = 0; i < size; i++) {
+            rows.put(idColumn[i], i);
+        }
+    }
+
+    // Overwrites the row of the person with the same id in place, or appends a new row. Must hold lock.
+    private void upsert(Person person) {
+        if (person.getId() == 0) {
+            person.ensureId();
+        }
+        // Checked before the row is touched, so a refused person leaves the store as it was
+        short age = toShort(person.getAge(), "age");
+        short duration = toShort(person.getInfectionDuration(), "infection duration");
+        short recovery = toShort(person.getRecoveryTime(), "recovery time");
+        int row = rows.get(person.getId());
+        if (row < 0) {
+            ensureCapacity(size + 1);
+            row = size++;
+            rows.put(person.getId(), row);
+        }
+        idColumn[row] = person.getId();
+        ageColumn[row] = age;
+        statusColumn[row] = (byte) person.getHealthStatus().ordinal();
+        durationColumn[row] = duration;
+        recoveryColumn[row] = recovery;
+        cityColumn[row] = person.getCityName() != null ? intern(person.getCityName(), cities, cityIds) : -1;
+        nameColumn[row] = intern(person.getName(), names, nameIds);
+        dirty = true;
+    }
+
+    // The columns are shorts; a value that does not fit is refused rather than stored wrong
+    private static short toShort(int value, String field) {
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("The " + field + " " + value + " does not fit the columnar person file.");
+        }
+        return (short) value;
+    }
+
+    // Moves the last row into the removed one. Must hold lock.
+    private void removeRow(int row) {
+        long removedId = idColumn[row];
+        int last = --size;
+        if (row != last) {
+            idColumn[row] = idColumn[last];
+            ageColumn[row] = ageColumn[last];
+            statusColumn[row] = statusColumn[last];
+            durationColumn[row] = durationColumn[last];
+            recoveryColumn[row] = recoveryColumn[last];
+            cityColumn[row] = cityColumn[last];
+            nameColumn[row] = nameColumn[last];
+            rows.put(idColumn[row], row);
+        }
+        rows.remove(removedId);
+        dirty = true;
+    }
+
+    // Removes every row with the given name id in a single pass, keeping the order of the others. Must hold lock.
+    private void removeByNameId(int nameId) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (nameColumn[i] != nameId) {
+                if (kept != i) {
+                    idColumn[kept] = idColumn[i];
+                    ageColumn[kept] = ageColumn[i];
+                    statusColumn[kept] = statusColumn[i];
+                    durationColumn[kept] = durationColumn[i];
+                    recoveryColumn[kept] = recoveryColumn[i];
+                    cityColumn[kept] = cityColumn[i];
+                    nameColumn[kept] = nameColumn[i];
+                }
+                kept++;
+            }
+        }
+        if (kept != size) {
+            size = kept;
+            rebuildRowIndex();
+            dirty = true;
+        }
+    }
+
+    // Must hold lock
+    private Person toPerson(int row) {
+        Person person = new Person();
+        person.setId(idColumn[row]);
+        person.setName(names.get(nameColumn[row]));
+        person.setAge(ageColumn[row]);
+        person.setHealthStatus(HealthStatus.values()[statusColumn[row]]);
+        person.setInfectionDuration(durationColumn[row]);
+        person.setRecoveryTime(recoveryColumn[row]);
+        person.setCityName(cityColumn[row] >= 0 ? cities.get(cityColumn[row]) : null);
+        return person;
+    }
+
+    @Override
+    public void flush() {
+        ensureLoaded();
+        lock.lock();
+        try {
+            if (dirty) {
+                save();
+                dirty = false;
+            }
+        } catch (IOException e) {
+            System.err.println("Error saving persons to columnar file: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addPerson(Person person) {
+        ensureLoaded();
+        lock.lock();
+        try {
+            upsert(person);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addAll(Collection<Person> persons) {
+        ensureLoaded();
+        lock.lock();
+        try {
+            ensureCapacity(size + persons.size());
+            persons.forEach(this::upsert);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<Person> persons) {
+        ensureLoaded();
+        lock.lock();
+        try {
+            persons.forEach(this::upsert);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public UnitOfWork beginUnitOfWork() {
+        return unitsOfWork.begin();
+    }
+
+    @Override
+    public List<Person> getAllPersons() {
+        ensureLoaded();
+        lock.lock();
+        try {
+            List<Person> persons = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                persons.add(toPerson(i));
+            }
+            return persons;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Person getPersonByName(String name) {
+        ensureLoaded();
+        lock.lock();
+        try {
+            Integer nameId = nameIds.get(name);
+            if (nameId != null) {
+                for (int i = 0; i < size; i++) {
+                    if (nameColumn[i] == nameId) {
+                        return toPerson(i);
+                    }
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updatePerson(Person person) {
+        ensureLoaded();
+        lock.lock();
+        try {
+            upsert(person);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Person getPersonById(long id) {
+        ensureLoaded();
+        lock.lock();
+        try {
+            int row = rows.get(id);
+            return row >= 0 ? toPerson(row) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deletePersonById(long id) {
+        ensureLoaded();
+        lock.lock();
+        try {
+            int row = rows.get(id);
+            if (row >= 0) {
+                removeRow(row);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deletePerson(String name) {
+        ensureLoaded();
+        lock.lock();
+        try {
+            Integer nameId = nameIds.get(name);
+            if (nameId != null) {
+                removeByNameId(nameId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Person> getInfectedPersons() {
+        ensureLoaded();
+        lock.lock();
+        try {
+            byte infected = (byte) HealthStatus.INFECTED.ordinal();
+            List<Person> persons = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                if (statusColumn[i] == infected) {
+                    persons.add(toPerson(i));
+                }
+            }
+            return persons;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Person> getPersonsByCity(String cityName) {
+        ensureLoaded();
+        lock.lock();
+        try {
+            List<Person> persons = new ArrayList<>();
+            Integer cityId = cityIds.get(cityName);
+            if (cityId != null) {
+                for (int i = 0; i < size; i++) {
+                    if (cityColumn[i] == cityId) {
+                        persons.add(toPerson(i));
+                    }
+                }
+            }
+            return persons;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package data;
+
+import domain.city.City;
+import domain.person.Person;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory branch of another city store. A city and its residents form one page: the branch reads the page
+ * from the parent until it first needs it, then works on its own copy from that moment on. Callers change cities
+ * and people in place, so every lookup through the branch counts as a write, except {@link #viewCityByName}.
+ * Pages the branch only views stay shared with the parent. A simulation touches every city it can change on its
+ * first day, so a running branch soon holds its own copy of most pages; the sharing makes forking itself cheap.
+ * <p>
+ * The people of the branch are in {@link #getPersonDao()}. Nothing is written back to the parent's stores. The
+ * parent must not change a page the branch still shares, so call {@link #detach()} before the parent goes on.
+ */
+public class CopyOnWriteCityDao implements CityDao {
+    private final CityDao parentCities;
+    private final CopyOnWritePersonDao persons;
+    private final Map<String, City> copied = new ConcurrentHashMap<>();
+    private final Set<String> deleted = ConcurrentHashMap.newKeySet();
+
+    public CopyOnWriteCityDao(CityDao parentCities, PersonDao parentPersons) {
+        this.parentCities = parentCities;
+        this.persons = new CopyOnWritePersonDao(parentPersons, this);
+    }
+
+    // The branch's people, kept consistent with the residents of its cities
+    public PersonDao getPersonDao() {
+        return persons;
+    }
+
+    @Override
+    public void addCity(City city) {
+        deleted.remove(city.getName());
+        copied.put(city.getName(), city);
+        persons.adopt(city.getResidents());
+    }
+
+    @Override
+    public List<City> getAllCities() {
+        Set<String> names = new LinkedHashSet<>();
+        for (City city : parentCities.getAllCities()) {
+            names.add(city.getName());
+        }
+        names.addAll(copied.keySet());
+        List<City> cities = new ArrayList<>();
+        for (String name : names) {
+            City city = getCityByName(name);
+            if (city != null) {
+                cities.add(city);
+            }
+        }
+        return cities;
+    }
+
+    @Override
+    public City getCityByName(String name) {
+        if (deleted.contains(name)) {
+            return null;
+        }
+        City city = copied.get(name);
+        if (city != null) {
+            return city;
+        }
+        City shared = parentCities.getCityByName(name);
+        if (shared == null) {
+            return null;
+        }
+        // Several threads may ask for the same page on the first simulated day; only one copy wins
+        return copied.computeIfAbsent(name, key -> copyPage(shared));
+    }
+
+    // Reading does not need a copy; the page stays shared until the branch looks it up to change it
+    @Override
+    public City viewCityByName(String name) {
+        if (deleted.contains(name)) {
+            return null;
+        }
+        City city = copied.get(name);
+        return city != null ? city : parentCities.viewCityByName(name);
+    }
+
+    @Override
+    public void updateCity(City city) {
+        if (!deleted.contains(city.getName())) {
+            copied.put(city.getName(), city);
+        }
+    }
+
+    @Override
+    public void deleteCity(String name) {
+        deleted.add(name);
+        copied.remove(name);
+    }
+
+    // Copies every page the branch still shares, after which the parent may change freely
+    public void detach() {
+        getAllCities();
+        persons.getAllPersons();
+    }
+
+    // Number of cities the branch has its own copy of
+    public int copiedPages() {
+        return copied.size();
+    }
+
+    // The residents keep their ids and order; each one is copied once, whether through its city or by id
+    private City copyPage(City shared) {
+        List<Person> residents = new ArrayList<>(shared.getResidents().size());
+        for (Person resident : shared.getResidents()) {
+            residents.add(persons.copyOf(resident));
+        }
+        return shared.copyWith(residents);
+    }
+
+    // Called by the person branch when someone is looked up by id before their city
+    City copyPageOf(Person person) {
+        return person.getCityName() != null ? getCityByName(person.getCityName()) : null;
+    }
+}
@@ -0,0 +1,141 @@
+package data;
+
+import domain.person.HealthStatus;
+import domain.person.Person;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The people of a {@link CopyOnWriteCityDao} branch. Looking someone up copies the page of their city, so the
+ * person found by id is the same object as the resident in the branch's city.
+ */
+public class CopyOnWritePersonDao implements PersonDao {
+    private final PersonDao parent;
+    private final CopyOnWriteCityDao cities;
+    private final Map<Long, Person> copied = new ConcurrentHashMap<>();
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+
+    CopyOnWritePersonDao(PersonDao parent, CopyOnWriteCityDao cities) {
+        this.parent = parent;
+        this.cities = cities;
+    }
+
+    @Override
+    public void addPerson(Person person) {
+        deleted.remove(person.getId());
+        copied.put(person.getId(), person);
+    }
+
+    @Override
+    public List<Person> getAllPersons() {
+        List<Person> persons = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (Person person : parent.getAllPersons()) {
+            Person own = getPersonById(person.getId());
+            if (own != null && seen.add(own.getId())) {
+                persons.add(own);
+            }
+        }
+        for (Person person : copied.values()) {
+            if (seen.add(person.getId())) {
+                persons.add(person); // Added to the branch only
+            }
+        }
+        return persons;
+    }
+
+    // Searches without copying; only the page of the person found is copied
+    @Override
+    public Person getPersonByName(String name) {
+        for (Person shared : parent.getAllPersons()) {
+            Person current = current(shared);
+            if (current != null && current.getName().equals(name)) {
+                return getPersonById(shared.getId());
+            }
+        }
+        for (Person person : copied.values()) {
+            if (person.getName().equals(name) && parent.getPersonById(person.getId()) == null) {
+                return person; // Added to the branch only
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Person getPersonById(long id) {
+        if (deleted.contains(id)) {
+            return null;
+        }
+        Person person = copied.get(id);
+        if (person != null) {
+            return person;
+        }
+        Person shared = parent.getPersonById(id);
+        if (shared == null) {
+            return null;
+        }
+        cities.copyPageOf(shared);
+        return copyOf(shared); // Already copied with the page unless they live in no city
+    }
+
+    @Override
+    public void updatePerson(Person person) {
+        if (!deleted.contains(person.getId())) {
+            copied.put(person.getId(), person);
+        }
+    }
+
+    // Deleting needs no copy of anyone's page
+    @Override
+    public void deletePerson(String name) {
+        for (Person shared : parent.getAllPersons()) {
+            Person current = current(shared);
+            if (current != null && current.getName().equals(name)) {
+                deletePersonById(shared.getId());
+            }
+        }
+        for (Person person : copied.values()) {
+            if (person.getName().equals(name)) {
+                deletePersonById(person.getId());
+            }
+        }
+    }
+
+    // The branch's version of a parent person without copying it: its own copy, the shared one, or null if deleted
+    private Person current(Person shared) {
+        if (deleted.contains(shared.getId())) {
+            return null;
+        }
+        Person own = copied.get(shared.getId());
+        return own != null ? own : shared;
+    }
+
+    @Override
+    public void deletePersonById(long id) {
+        deleted.add(id);
+        copied.remove(id);
+    }
+
+    @Override
+    public List<Person> getInfectedPersons() {
+        return getAllPersons().stream().filter(person -> person.getHealthStatus() == HealthStatus.INFECTED).toList();
+    }
+
+    // The branch's copy of a parent person, made on first use
+    Person copyOf(Person shared) {
+        return copied.computeIfAbsent(shared.getId(), id -> shared.copy());
+    }
+
+    // People that came with a city added to the branch
+    void adopt(Collection<Person> persons) {
+        for (Person person : persons) {
+            addPerson(person);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package data;
+
+import domain.city.City;
+import domain.city.RiskLevel;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * City store in an embedded H2 database file. Cities stay cached like in the JSON stores. Changes go to the
+ * database in batched statements, limited to the cities marked dirty. Resident ids are only rewritten when they
+ * actually changed.
+ */
+public class H2CityDatabase implements CityDao {
+    private final Map<String, City> cityCache = new LinkedHashMap<>();
+    private final Map<String, long[]> storedResidentIds = new HashMap<>();
+    private final Set<String> deletedCities = new HashSet<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final UnitOfWorkTracker unitsOfWork = new UnitOfWorkTracker(this::flush);
+    private final Connection connection;
+    private boolean cacheLoaded = false;
+
+    public H2CityDatabase(String databasePath) {
+        try {
+            this.connection = DriverManager.getConnection("jdbc:h2:file:" + Paths.get(databasePath).toAbsolutePath());
+            connection.setAutoCommit(false);
+            createSchema();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error opening city database: " + e.getMessage(), e);
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS cities ("
+                    + "name VARCHAR(255) PRIMARY KEY, seq BIGINT GENERATED BY DEFAULT AS IDENTITY, population_density DOUBLE NOT NULL, "
+                    + "infection_rate DOUBLE NOT NULL, risk_level VARCHAR(16) NOT NULL)");
+            statement.execute("CREATE TABLE IF NOT EXISTS city_connections ("
+                    + "city_name VARCHAR(255) NOT NULL, neighbour VARCHAR(255) NOT NULL, weight DOUBLE NOT NULL, "
+                    + "PRIMARY KEY (city_name, neighbour))");
+            statement.execute("CREATE TABLE IF NOT EXISTS city_residents ("
+                    + "city_name VARCHAR(255) NOT NULL, position INT NOT NULL, person_id BIGINT NOT NULL, "
+                    + "PRIMARY KEY (city_name, position))");
+            statement.execute("CREATE INDEX IF NOT EXISTS cities_risk_level ON cities (risk_level)");
+        }
+        connection.commit();
+    }
+
+    // Load cache from the database if not loaded
+    private void ensureCacheLoaded() {
+        lock.lock();
+        try {
+            if (!cacheLoaded) {
+                cityCache.clear();
+                storedResidentIds.clear();
+                loadCities();
+                cacheLoaded = true;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading cities from database: " + e.getMessage());
+            cityCache.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void loadCities() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rows = statement.executeQuery(
+                    "SELECT name, population_density, infection_rate, risk_level FROM cities ORDER BY seq")) {
+                while (rows.next()) {
+                    City city = new City(rows.getString(1), rows.getDouble(2));
+                    city.setInfectionRate(rows.getDouble(3));
+                    city.setRiskLevel(RiskLevel.valueOf(rows.getString(4)));
+                    cityCache.put(city.getName(), city);
+                }
+            }
+            try (ResultSet rows = statement.executeQuery("SELECT city_name, neighbour, weight FROM city_connections")) {
+                while (rows.next()) {
+                    City city = cityCache.get(rows.getString(1));
+                    if (city != null) {
+                        city.getConnections().put(rows.getString(2), rows.getDouble(3));
+                    }
+                }
+            }
+            Map<String, List<Long>> residentIds = new HashMap<>();
+            try (ResultSet rows = statement.executeQuery(
+                    "SELECT city_name, person_id FROM city_residents ORDER BY city_name, position")) {
+                while (rows.next()) {
+                    residentIds.computeIfAbsent(rows.getString(1), name -> new ArrayList<>()).add(rows.getLong(2));
+                }
+            }
+            for (City city : cityCache.values()) {
+                long[] ids = residentIds.getOrDefault(city.getName(), List.of()).stream().mapToLong(Long::longValue).toArray();
+                city.setResidentIds(ids);
+                storedResidentIds.put(city.getName(), ids);
+                city.markClean();
+            }
+        }
+    }
+
+    // Writes dirty cities and removes deleted ones in a single transaction
+    @Override
+    public void flush() {
+        ensureCacheLoaded();
+        lock.lock();
+        try (PreparedStatement mergeCity = connection.prepareStatement(
+                     "MERGE INTO cities (name, population_density, infection_rate, risk_level) KEY (name) VALUES (?, ?, ?, ?)");
+             PreparedStatement deleteConnections = connection.prepareStatement("DELETE FROM city_connections WHERE city_name = ?");
+             PreparedStatement insertConnection = connection.prepareStatement(
+                     "INSERT INTO city_connections (city_name, neighbour, weight) VALUES (?, ?, ?)");
+             PreparedStatement deleteResidents = connection.prepareStatement("DELETE FROM city_residents WHERE city_name = ?");
+             PreparedStatement insertResident = connection.prepareStatement(
+                     "INSERT INTO city_residents (city_name, position, person_id) VALUES (?, ?, ?)");
+             PreparedStatement deleteCity = connection.prepareStatement("DELETE FROM cities WHERE name = ?")) {
+            List<City> written = new ArrayList<>();
+            Map<String, long[]> writtenResidentIds = new HashMap<>();
+            for (City city : cityCache.values()) {
+                if (!city.isDirty()) {
+                    continue;
+                }
+                String name = city.getName();
+                mergeCity.setString(1, name);
+                mergeCity.setDouble(2, city.getPopulationDensity());
+                mergeCity.setDouble(3, city.getInfectionRate());
+                mergeCity.setString(4, city.getRiskLevel().name());
+                mergeCity.addBatch();
+
+                deleteConnections.setString(1, name);
+                deleteConnections.addBatch();
+                for (Map.Entry<String, Double> neighbour : city.getConnections().entrySet()) {
+                    insertConnection.setString(1, name);
+                    insertConnection.setString(2, neighbour.getKey());
+                    insertConnection.setDouble(3, neighbour.getValue());
+                    insertConnection.addBatch();
+                }
+
+                long[] ids = city.getResidentIds();
+                if (!Arrays.equals(ids, storedResidentIds.get(name))) {
+                    deleteResidents.setString(1, name);
+                    deleteResidents.addBatch();
+                    for (int i = 0; i < ids.length; i++) {
+                        insertResident.setString(1, name);
+                        insertResident.setInt(2, i);
+                        insertResident.setLong(3, ids[i]);
+                        insertResident.addBatch();
+                    }
+                    writtenResidentIds.put(name, ids);
+                }
+                written.add(city);
+            }
+            for (String name : deletedCities) {
+                deleteCity.setString(1, name);
+                deleteCity.addBatch();
+                deleteConnections.setString(1, name);
+                deleteConnections.addBatch();
+                deleteResidents.setString(1, name);
+                deleteResidents.addBatch();
+            }
+            // Deletes run first so a re-added city is inserted into empty rows
+            deleteCity.executeBatch();
+            deleteConnections.executeBatch();
+            deleteResidents.executeBatch();
+            mergeCity.executeBatch();
+            insertConnection.executeBatch();
+            insertResident.executeBatch();
+            connection.commit();
+
+            written.forEach(City::markClean);
+            storedResidentIds.putAll(writtenResidentIds);
+            deletedCities.forEach(storedResidentIds::remove);
+            deletedCities.clear();
+        } catch (SQLException e) {
+            System.err.println("Error saving cities to database: " + e.getMessage());
+            try {
+                connection.rollback(); // Cities stay dirty and are retried on the next flush
+            } catch (SQLException rollbackError) {
+                System.err.println("Error rolling back: " + rollbackError.getMessage());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Flushes immediately unless a unit of work will flush later
+    private void writeThrough() {
+        if (!unitsOfWork.isOpen()) {
+            flush();
+        }
+    }
+
+    @Override
+    public void addCity(City city) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            city.markDirty();
+            if (deletedCities.remove(city.getName())) {
+                storedResidentIds.remove(city.getName());
+            }
+            cityCache.put(city.getName(), city);
+        } finally {
+            lock.unlock();
+        }
+        writeThrough();
+    }
+
+    @Override
+    public void updateCity(City city) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            if (cityCache.get(city.getName()) != city) {
+                city.markDirty(); // A different instance replaces the cached one; setters track changes to the same one
+            }
+            cityCache.put(city.getName(), city);
+        } finally {
+            lock.unlock();
+        }
+        writeThrough();
+    }
+
+    @Override
+    public void upsertCities(Collection<City> cities) {
+        try (UnitOfWork batch = beginUnitOfWork()) {
+            cities.forEach(this::updateCity);
+        }
+    }
+
+    @Override
+    public UnitOfWork beginUnitOfWork() {
+        return unitsOfWork.begin();
+    }
+
+    @Override
+    public List<City> getAllCities() {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            return new ArrayList<>(cityCache.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public City getCityByName(String name) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            return cityCache.get(name);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteCity(String name) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            if (cityCache.remove(name) != null) {
+                deletedCities.add(name);
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeThrough();
+    }
+
+    @Override
+    public void close() {
+        flush();
+        lock.lock();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing city database: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
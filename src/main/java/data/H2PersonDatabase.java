@@ -0,0 +1,275 @@
+package data;
+
+import domain.person.HealthStatus;
+import domain.person.Person;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Person store in an embedded H2 database file. Writes use batched prepared statements. Lookups by city, health
+ * status and a batch of ids, and the per-city status counts, run as indexed queries instead of loading every
+ * person.
+ */
+public class H2PersonDatabase implements PersonDao {
+    private static final String COLUMNS = "id, name, age, health_status, infection_duration, city_name, recovery_time";
+
+    private final Connection connection;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final UnitOfWorkTracker unitsOfWork = new UnitOfWorkTracker(this::commit);
+
+    public H2PersonDatabase(String databasePath) {
+        try {
+            this.connection = DriverManager.getConnection("jdbc:h2:file:" + Paths.get(databasePath).toAbsolutePath());
+            connection.setAutoCommit(false);
+            createSchema();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error opening person database: " + e.getMessage(), e);
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS persons ("
+                    + "id BIGINT PRIMARY KEY, name VARCHAR(255) NOT NULL, age INT NOT NULL, "
+                    + "health_status VARCHAR(16) NOT NULL, infection_duration INT NOT NULL, "
+                    + "city_name VARCHAR(255), recovery_time INT NOT NULL)");
+            statement.execute("CREATE INDEX IF NOT EXISTS persons_city_status ON persons (city_name, health_status)");
+            statement.execute("CREATE INDEX IF NOT EXISTS persons_status ON persons (health_status)");
+            statement.execute("CREATE INDEX IF NOT EXISTS persons_name ON persons (name)");
+        }
+        connection.commit();
+    }
+
+    private void commit() {
+        lock.lock();
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            System.err.println("Error committing persons: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Commits unless a unit of work will commit later. Must hold lock.
+    private void commitUnlessBatched() throws SQLException {
+        if (!unitsOfWork.isOpen()) {
+            connection.commit();
+        }
+    }
+
+    private void rollback(SQLException cause, String action) {
+        System.err.println("Error " + action + ": " + cause.getMessage());
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back: " + e.getMessage());
+        }
+    }
+
+    private void merge(Collection<Person> persons) {
+        lock.lock();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "MERGE INTO persons (" + COLUMNS + ") KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (Person person : persons) {
+                if (person.getId() == 0) {
+                    person.ensureId();
+                }
+                statement.setLong(1, person.getId());
+                statement.setString(2, person.getName());
+                statement.setInt(3, person.getAge());
+                statement.setString(4, person.getHealthStatus().name());
+                statement.setInt(5, person.getInfectionDuration());
+                statement.setString(6, person.getCityName());
+                statement.setInt(7, person.getRecoveryTime());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            commitUnlessBatched();
+        } catch (SQLException e) {
+            rollback(e, "saving persons");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Person> query(String where, Object... parameters) {
+        lock.lock();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT " + COLUMNS + " FROM persons" + where + " ORDER BY id")) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            List<Person> persons = new ArrayList<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    persons.add(toPerson(rows));
+                }
+            }
+            return persons;
+        } catch (SQLException e) {
+            System.err.println("Error loading persons: " + e.getMessage());
+            return new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Person toPerson(ResultSet row) throws SQLException {
+        Person person = new Person();
+        person.setId(row.getLong("id"));
+        person.setName(row.getString("name"));
+        person.setAge(row.getInt("age"));
+        person.setHealthStatus(HealthStatus.valueOf(row.getString("health_status")));
+        person.setInfectionDuration(row.getInt("infection_duration"));
+        person.setCityName(row.getString("city_name"));
+        person.setRecoveryTime(row.getInt("recovery_time"));
+        person.ensureId();
+        return person;
+    }
+
+    private void delete(String where, Object parameter) {
+        lock.lock();
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM persons" + where)) {
+            statement.setObject(1, parameter);
+            statement.executeUpdate();
+            commitUnlessBatched();
+        } catch (SQLException e) {
+            rollback(e, "deleting persons");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void addPerson(Person person) {
+        merge(List.of(person));
+    }
+
+    @Override
+    public void addAll(Collection<Person> persons) {
+        merge(persons);
+    }
+
+    @Override
+    public void updatePerson(Person person) {
+        merge(List.of(person));
+    }
+
+    @Override
+    public void updateAll(Collection<Person> persons) {
+        merge(persons);
+    }
+
+    @Override
+    public UnitOfWork beginUnitOfWork() {
+        return unitsOfWork.begin();
+    }
+
+    @Override
+    public List<Person> getAllPersons() {
+        return query("");
+    }
+
+    @Override
+    public Person getPersonByName(String name) {
+        List<Person> persons = query(" WHERE name = ?", name);
+        return persons.isEmpty() ? null : persons.get(0);
+    }
+
+    @Override
+    public Person getPersonById(long id) {
+        List<Person> persons = query(" WHERE id = ?", id);
+        return persons.isEmpty() ? null : persons.get(0);
+    }
+
+    @Override
+    public void deletePerson(String name) {
+        delete(" WHERE name = ?", name);
+    }
+
+    @Override
+    public void deletePersonById(long id) {
+        delete(" WHERE id = ?", id);
+    }
+
+    @Override
+    public List<Person> getInfectedPersons() {
+        return query(" WHERE health_status = ?", HealthStatus.INFECTED.name());
+    }
+
+    @Override
+    public List<Person> getPersonsByCity(String cityName) {
+        return query(" WHERE city_name = ?", cityName);
+    }
+
+    // One query for all the ids instead of one per person
+    @Override
+    public List<Person> getPersonsByIds(long[] ids) {
+        Map<Long, Person> found = new HashMap<>();
+        for (Person person : query(" WHERE id = ANY(?)", (Object) Arrays.stream(ids).boxed().toArray(Long[]::new))) {
+            found.put(person.getId(), person);
+        }
+        List<Person> persons = new ArrayList<>(found.size());
+        for (long id : ids) {
+            Person person = found.get(id);
+            if (person != null) {
+                persons.add(person);
+            }
+        }
+        return persons;
+    }
+
+    // One GROUP BY over the (city_name, health_status) index, which holds both columns, so no row is read
+    @Override
+    public Map<String, Map<HealthStatus, Integer>> countByCityAndHealthStatus() {
+        Map<String, Map<HealthStatus, Integer>> counts = new HashMap<>();
+        lock.lock();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT city_name, health_status, COUNT(*)"
+                + " FROM persons WHERE city_name IS NOT NULL GROUP BY city_name, health_status")) {
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    counts.computeIfAbsent(rows.getString(1), city -> PersonDao.emptyCounts())
+                            .put(HealthStatus.valueOf(rows.getString(2)), rows.getInt(3));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting persons: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+        return counts;
+    }
+
+    // Commits what was written so far, even inside an open unit of work
+    @Override
+    public void flush() {
+        commit();
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            connection.commit();
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing person database: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
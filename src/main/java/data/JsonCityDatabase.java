@@ -6,27 +6,54 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.type.CollectionType;
 import domain.city.City;
+import domain.city.RiskLevel;
+import domain.person.Person;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import java.util.concurrent.locks.ReentrantLock;
 
 public class JsonCityDatabase implements CityDao {
-    // In-memory cache for cities
-    private final List<City> cityCache = new ArrayList<>();
+    // In-memory cache for cities, keyed by name; insertion order is the iteration and on-disk order
+    private final Map<String, City> cityCache = new LinkedHashMap<>();
     private final ReentrantLock lock = new ReentrantLock();
     private final String filePath;
     private final ObjectMapper objectMapper;
+    private final ChangeJournal<CityChange> journal; // null unless journaling
+    // What the snapshot and journal hold for each city, to journal only the fields that differ from it
+    private final Map<String, JournaledCity> journaled = new HashMap<>();
+    // Cities added or updated since their last record; recorded once each when the changes are committed
+    private final Set<String> unjournaled = new LinkedHashSet<>();
+    private final UnitOfWorkTracker unitsOfWork = new UnitOfWorkTracker(this::commitUnitOfWork);
     private boolean cacheLoaded = false;
+    private boolean savePending = false; // A save was deferred by an open unit of work
 
     public JsonCityDatabase(String filePath) {
         this.filePath = filePath;
         this.objectMapper = new ObjectMapper();
+        this.journal = null;
+    }
+
+    // Journaling mode: each commit appends one record per changed city, holding only the changed fields, instead
+    // of rewriting the file. The journal is folded into a new snapshot once it reaches compactionThresholdBytes.
+    public JsonCityDatabase(String filePath, long compactionThresholdBytes) {
+        this.filePath = filePath;
+        this.objectMapper = new ObjectMapper();
+        this.journal = new ChangeJournal<>(filePath, CITY_CODEC, compactionThresholdBytes);
     }
 
     // Load cache from disk if not loaded
@@ -36,13 +63,22 @@ public class JsonCityDatabase implements CityDao {
             if (!cacheLoaded) {
                 File file = new File(filePath);
                 if (!file.exists()) {
-                    Files.createDirectories(Paths.get(file.getParent()));
+                    if (file.getParentFile() != null) {
+                        Files.createDirectories(file.getParentFile().toPath());
+                    }
                     Files.writeString(Paths.get(filePath), "[]");
                     cityCache.clear();
                 } else {
-                    List<City> loaded = objectMapper.readValue(file, new TypeReference<>() {});
                     cityCache.clear();
-                    cityCache.addAll(loaded);
+                    JsonStreams.forEach(objectMapper, file, City.class, city -> true, city -> {
+                        city.getResidents().forEach(Person::ensureId); // Residents embedded by older files
+                        cityCache.put(city.getName(), city);
+                    });
+                }
+                if (journal != null) {
+                    journaled.clear();
+                    cityCache.values().forEach(city -> journaled.put(city.getName(), new JournaledCity(city)));
+                    journal.recover(this::replay);
                 }
                 cacheLoaded = true;
             }
@@ -54,11 +90,107 @@ public class JsonCityDatabase implements CityDao {
         }
     }
 
+    // Applies a change to the cache and marks it for the journal. Must hold lock.
+    private void applyChange(ChangeJournal.Operation operation, String name, City city) {
+        switch (operation) {
+            case ADD, UPDATE -> cityCache.put(name, city); // Replacing an existing key keeps its position
+            case DELETE -> cityCache.remove(name);
+        }
+        if (journal != null && cacheLoaded) {
+            if (operation == ChangeJournal.Operation.DELETE) {
+                unjournaled.remove(name);
+                journaled.remove(name);
+                journal.record(operation, name, null);
+            } else {
+                unjournaled.add(name);
+            }
+        }
+    }
+
+    // Records each city changed since the last commit, once, with only what differs from its last record. Must hold lock.
+    private void journalChanges() {
+        for (String name : unjournaled) {
+            City city = cityCache.get(name);
+            JournaledCity last = journaled.get(name);
+            if (last == null) {
+                journal.record(ChangeJournal.Operation.ADD, name, CityChange.of(city));
+                journaled.put(name, new JournaledCity(city));
+            } else {
+                CityChange change = last.changeTo(city);
+                if (change.fields != 0) {
+                    journal.record(ChangeJournal.Operation.UPDATE, name, change);
+                }
+            }
+        }
+        unjournaled.clear();
+    }
+
+    // Applies a journal record to the cache while recovering. Must hold lock.
+    private void replay(ChangeJournal.Operation operation, String name, CityChange change) {
+        switch (operation) {
+            case ADD -> {
+                City city = new City(name, change.populationDensity);
+                change.applyTo(city);
+                cityCache.put(name, city);
+                journaled.put(name, new JournaledCity(city));
+            }
+            case UPDATE -> {
+                City city = cityCache.get(name);
+                if (city != null) {
+                    change.applyTo(city);
+                    journaled.put(name, new JournaledCity(city));
+                }
+            }
+            case DELETE -> {
+                cityCache.remove(name);
+                journaled.remove(name);
+            }
+        }
+    }
+
+    private void commitUnitOfWork() {
+        lock.lock();
+        try {
+            if (savePending) {
+                savePending = false;
+                saveCacheToDisk();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     // Save cache to disk
     private void saveCacheToDisk() {
+        if (unitsOfWork.isOpen()) {
+            lock.lock();
+            try {
+                savePending = true;
+            } finally {
+                lock.unlock();
+            }
+            return;
+        }
+        if (journal != null) {
+            lock.lock();
+            try {
+                journalChanges();
+            } finally {
+                lock.unlock();
+            }
+            journal.commit(lock, () -> {
+                // Cities change in place after the cut, so the compactor gets copies
+                List<City> snapshot = new ArrayList<>(cityCache.size());
+                for (City city : cityCache.values()) {
+                    snapshot.add(city.copyWith(new ArrayList<>(city.getResidents())));
+                }
+                return file -> JsonStreams.writeArray(objectMapper, file, snapshot);
+            });
+            return;
+        }
         lock.lock();
         try {
-            objectMapper.writeValue(new File(filePath), cityCache);
+            JsonStreams.writeArray(objectMapper, new File(filePath), cityCache.values());
         } catch (IOException e) {
             System.err.println("Error saving cities to JSON: " + e.getMessage());
         } finally {
@@ -71,7 +203,7 @@ public class JsonCityDatabase implements CityDao {
         ensureCacheLoaded();
         lock.lock();
         try {
-            cityCache.add(city);
+            applyChange(ChangeJournal.Operation.ADD, city.getName(), city);
             saveCacheToDisk();
         } finally {
             lock.unlock();
@@ -83,20 +215,41 @@ public class JsonCityDatabase implements CityDao {
         ensureCacheLoaded();
         lock.lock();
         try {
-            cityCache.removeIf(c -> c.getName().equals(city.getName()));
-            cityCache.add(city);
+            applyChange(ChangeJournal.Operation.UPDATE, city.getName(), city);
+            saveCacheToDisk();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void upsertCities(Collection<City> cities) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            for (City city : cities) {
+                ChangeJournal.Operation operation = cityCache.containsKey(city.getName())
+                        ? ChangeJournal.Operation.UPDATE
+                        : ChangeJournal.Operation.ADD;
+                applyChange(operation, city.getName(), city);
+            }
             saveCacheToDisk();
         } finally {
             lock.unlock();
         }
     }
 
+    @Override
+    public UnitOfWork beginUnitOfWork() {
+        return unitsOfWork.begin();
+    }
+
     @Override
     public List<City> getAllCities() {
         ensureCacheLoaded();
         lock.lock();
         try {
-            return new ArrayList<>(cityCache);
+            return new ArrayList<>(cityCache.values());
         } finally {
             lock.unlock();
         }
@@ -107,7 +260,7 @@ public class JsonCityDatabase implements CityDao {
         ensureCacheLoaded();
         lock.lock();
         try {
-            return cityCache.stream().filter(city -> city.getName().equals(name)).findFirst().orElse(null);
+            return cityCache.get(name);
         } finally {
             lock.unlock();
         }
@@ -118,10 +271,175 @@ public class JsonCityDatabase implements CityDao {
         ensureCacheLoaded();
         lock.lock();
         try {
-            cityCache.removeIf(city -> city.getName().equals(name));
+            applyChange(ChangeJournal.Operation.DELETE, name, null);
             saveCacheToDisk();
         } finally {
             lock.unlock();
         }
     }
+
+    // Waits for a running compaction and releases the journal
+    @Override
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    // One journal record: the fields named in the mask, with their new values. An ADD holds every field.
+    static final class CityChange {
+        static final int DENSITY = 1;
+        static final int INFECTION_RATE = 2;
+        static final int RISK_LEVEL = 4;
+        static final int CONNECTIONS = 8;
+        static final int RESIDENTS = 16;
+        static final int ALL = DENSITY | INFECTION_RATE | RISK_LEVEL | CONNECTIONS | RESIDENTS;
+
+        int fields;
+        double populationDensity;
+        double infectionRate;
+        RiskLevel riskLevel;
+        Map<String, Double> connections;
+        long[] residentIds;
+
+        static CityChange of(City city) {
+            CityChange change = new CityChange();
+            change.fields = ALL;
+            change.populationDensity = city.getPopulationDensity();
+            change.infectionRate = city.getInfectionRate();
+            change.riskLevel = city.getRiskLevel();
+            change.connections = new HashMap<>(city.getConnections());
+            change.residentIds = city.getResidentIds();
+            return change;
+        }
+
+        void applyTo(City city) {
+            if ((fields & DENSITY) != 0) {
+                city.setPopulationDensity(populationDensity);
+            }
+            if ((fields & INFECTION_RATE) != 0) {
+                city.setInfectionRate(infectionRate);
+            }
+            if ((fields & RISK_LEVEL) != 0) {
+                city.setRiskLevel(riskLevel);
+            }
+            if ((fields & CONNECTIONS) != 0) {
+                city.setConnections(new HashMap<>(connections));
+            }
+            if ((fields & RESIDENTS) != 0) {
+                city.setResidents(new ArrayList<>()); // Drops residents embedded by older files
+                city.setResidentIds(residentIds);
+            }
+        }
+    }
+
+    // A city's fields as last recorded. Resident ids are only compared when the residents were replaced since.
+    private static final class JournaledCity {
+        private double populationDensity;
+        private double infectionRate;
+        private RiskLevel riskLevel;
+        private Map<String, Double> connections;
+        private long[] residentIds;
+        private City residentsOf;
+        private int residentsVersion;
+
+        JournaledCity(City city) {
+            populationDensity = city.getPopulationDensity();
+            infectionRate = city.getInfectionRate();
+            riskLevel = city.getRiskLevel();
+            connections = new HashMap<>(city.getConnections());
+            residentIds = city.getResidentIds().clone();
+            residentsOf = city;
+            residentsVersion = city.getResidentsVersion();
+        }
+
+        // The fields of city that differ from the last record; this becomes the new last record
+        CityChange changeTo(City city) {
+            CityChange change = new CityChange();
+            if (city.getPopulationDensity() != populationDensity) {
+                change.fields |= CityChange.DENSITY;
+                change.populationDensity = populationDensity = city.getPopulationDensity();
+            }
+            if (city.getInfectionRate() != infectionRate) {
+                change.fields |= CityChange.INFECTION_RATE;
+                change.infectionRate = infectionRate = city.getInfectionRate();
+            }
+            if (city.getRiskLevel() != riskLevel) {
+                change.fields |= CityChange.RISK_LEVEL;
+                change.riskLevel = riskLevel = city.getRiskLevel();
+            }
+            if (!city.getConnections().equals(connections)) {
+                change.fields |= CityChange.CONNECTIONS;
+                change.connections = connections = new HashMap<>(city.getConnections());
+            }
+            if (city != residentsOf || city.getResidentsVersion() != residentsVersion) {
+                long[] ids = city.getResidentIds();
+                if (!Arrays.equals(ids, residentIds)) {
+                    change.fields |= CityChange.RESIDENTS;
+                    change.residentIds = residentIds = ids.clone();
+                }
+                residentsOf = city;
+                residentsVersion = city.getResidentsVersion();
+            }
+            return change;
+        }
+    }
+
+    static final ChangeJournal.RecordCodec<CityChange> CITY_CODEC = new ChangeJournal.RecordCodec<>() {
+        @Override
+        public void write(DataOutput out, CityChange change) throws IOException {
+            out.writeByte(change.fields);
+            if ((change.fields & CityChange.DENSITY) != 0) {
+                out.writeDouble(change.populationDensity);
+            }
+            if ((change.fields & CityChange.INFECTION_RATE) != 0) {
+                out.writeDouble(change.infectionRate);
+            }
+            if ((change.fields & CityChange.RISK_LEVEL) != 0) {
+                out.writeByte(change.riskLevel.ordinal());
+            }
+            if ((change.fields & CityChange.CONNECTIONS) != 0) {
+                out.writeInt(change.connections.size());
+                for (Map.Entry<String, Double> connection : change.connections.entrySet()) {
+                    out.writeUTF(connection.getKey());
+                    out.writeDouble(connection.getValue());
+                }
+            }
+            if ((change.fields & CityChange.RESIDENTS) != 0) {
+                out.writeInt(change.residentIds.length);
+                for (long residentId : change.residentIds) {
+                    out.writeLong(residentId);
+                }
+            }
+        }
+
+        @Override
+        public CityChange read(DataInput in) throws IOException {
+            CityChange change = new CityChange();
+            change.fields = in.readByte();
+            if ((change.fields & CityChange.DENSITY) != 0) {
+                change.populationDensity = in.readDouble();
+            }
+            if ((change.fields & CityChange.INFECTION_RATE) != 0) {
+                change.infectionRate = in.readDouble();
+            }
+            if ((change.fields & CityChange.RISK_LEVEL) != 0) {
+                change.riskLevel = RiskLevel.values()[in.readByte()];
+            }
+            if ((change.fields & CityChange.CONNECTIONS) != 0) {
+                int connections = in.readInt();
+                change.connections = new HashMap<>();
+                for (int i = 0; i < connections; i++) {
+                    change.connections.put(in.readUTF(), in.readDouble());
+                }
+            }
+            if ((change.fields & CityChange.RESIDENTS) != 0) {
+                change.residentIds = new long[in.readInt()];
+                for (int i = 0; i < change.residentIds.length; i++) {
+                    change.residentIds[i] = in.readLong();
+                }
+            }
+            return change;
+        }
+    };
 }
@@ -1,30 +1,98 @@
 package data;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.type.CollectionType;
 import domain.person.HealthStatus;
 import domain.person.Person;
+import domain.utils.LongIntIndex;
 import domain.utils.MyLogger;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 public class JsonPersonDatabase implements PersonDao {
-    // WARNING: This implementation loads and saves the entire person list for every operation.
-    // TODO: Add concurrency controls and transactional safety for multi-threaded or multi-process use.
+    // People are kept resident in memory. In write-through mode every change is saved immediately;
+    // in write-behind mode changes only mark the cache dirty and are saved by flush().
+    // In journaling mode flush() appends only the changes since the last flush to a ChangeJournal.
     // TODO: Implement error bubbling (currently, errors are only printed, not thrown to callers).
-    // NOTE: There are no automated tests for this component yet.
+    private final List<Person> personCache = new ArrayList<>();
+    private final LongIntIndex positions = new LongIntIndex(); // Person id -> position in personCache
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock(); // Keeps snapshots from hitting disk out of order
     private final String filePath;
     private final ObjectMapper objectMapper;
+    private final boolean writeBehind;
+    private final ScheduledExecutorService flushScheduler;
+    private final ChangeJournal<Person> journal; // null unless journaling
+    private final UnitOfWorkTracker unitsOfWork = new UnitOfWorkTracker(this::flush);
     private static final Logger logger = MyLogger.getLogger();
+    private boolean cacheLoaded = false;
+    private boolean dirty = false;
 
     public JsonPersonDatabase(String filePath) {
         this.filePath = filePath;
         this.objectMapper = new ObjectMapper();
+        this.writeBehind = false;
+        this.flushScheduler = null;
+        this.journal = null;
+    }
+
+    // Write-behind mode: changes are flushed every flushIntervalMillis, or only on flush() when the interval is <= 0
+    public JsonPersonDatabase(String filePath, long flushIntervalMillis) {
+        this(filePath, flushIntervalMillis, 0);
+    }
+
+    // Journaling write-behind mode: the journal is folded into a new snapshot once it reaches compactionThresholdBytes
+    public JsonPersonDatabase(String filePath, long flushIntervalMillis, long compactionThresholdBytes) {
+        this.filePath = filePath;
+        this.objectMapper = new ObjectMapper();
+        this.writeBehind = true;
+        this.journal = compactionThresholdBytes > 0
+                ? new ChangeJournal<>(filePath, PERSON_CODEC, compactionThresholdBytes)
+                : null;
+        if (flushIntervalMillis > 0) {
+            this.flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "person-db-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flushScheduler.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.flushScheduler = null;
+        }
+    }
+
+    // Load cache from disk if not loaded
+    private void ensureCacheLoaded() {
+        lock.lock();
+        try {
+            if (!cacheLoaded) {
+                personCache.clear();
+                positions.clear();
+                for (Person person : loadPersons()) {
+                    applyChange(ChangeJournal.Operation.UPDATE, person.getId(), person);
+                }
+                if (journal != null) {
+                    journal.recover((operation, key, person) -> applyChange(operation, Long.parseLong(key), person));
+                }
+                cacheLoaded = true;
+            }
+        } catch (IOException e) {
+            System.err.println("Error replaying person journal: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
     }
 
     private List<Person> loadPersons() {
@@ -33,61 +101,304 @@ public class JsonPersonDatabase implements PersonDao {
             if (!file.exists()) {
                 return new ArrayList<>(); // Return empty list if file doesn't exist
             }
-            CollectionType type = objectMapper.getTypeFactory().constructCollectionType(List.class, Person.class);
-            return objectMapper.readValue(file, type);
+            List<Person> persons = JsonStreams.readList(objectMapper, file, Person.class, person -> true);
+            persons.forEach(Person::ensureId);
+            return persons;
         } catch (IOException e) {
             System.err.println("Error loading persons from JSON: " + e.getMessage());
             return new ArrayList<>(); // Return empty list in case of error
         }
     }
 
-    private void savePersons(List<Person> persons) {
+    private boolean savePersons(List<Person> persons) {
         try {
-            objectMapper.writeValue(new File(filePath), persons);
+            JsonStreams.writeArray(objectMapper, new File(filePath), persons);
+            return true;
         } catch (IOException e) {
             System.err.println("Error saving persons to JSON: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Called after the cache lock is released, so flush() never waits on it while holding flushLock
+    private void writeThrough() {
+        if (!writeBehind && !unitsOfWork.isOpen()) {
+            flush();
+        }
+    }
+
+    // Applies a change to the cache; used both for live changes and for journal replay. Must hold lock.
+    // People are matched by id, so add and update both replace an existing entry in place.
+    private void applyChange(ChangeJournal.Operation operation, long id, Person person) {
+        int position = positions.get(id);
+        switch (operation) {
+            case ADD, UPDATE -> {
+                if (position >= 0) {
+                    personCache.set(position, person);
+                } else {
+                    positions.put(id, personCache.size());
+                    personCache.add(person);
+                }
+            }
+            case DELETE -> {
+                if (position < 0) {
+                    return;
+                }
+                // Move the last person into the hole so removal does not shift the list
+                Person last = personCache.remove(personCache.size() - 1);
+                if (position < personCache.size()) {
+                    personCache.set(position, last);
+                    positions.put(last.getId(), position);
+                }
+                positions.remove(id);
+            }
+        }
+        if (journal != null && cacheLoaded) {
+            journal.record(operation, Long.toString(id), person);
+        }
+        dirty = true;
+    }
+
+    // Gives people created without the normal constructor an id before they are indexed
+    private static Person withId(Person person) {
+        if (person.getId() == 0) {
+            person.ensureId();
+        }
+        return person;
+    }
+
+    @Override
+    public void flush() {
+        if (journal != null) {
+            ensureCacheLoaded();
+            journal.commit(lock, () -> {
+                // People change in place after the cut, so the compactor gets copies
+                List<Person> snapshot = personCache.stream().map(Person::copy).toList();
+                return file -> JsonStreams.writeArray(objectMapper, file, snapshot);
+            });
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<Person> snapshot;
+            lock.lock();
+            try {
+                if (!dirty) {
+                    return;
+                }
+                snapshot = new ArrayList<>(personCache);
+                dirty = false;
+            } finally {
+                lock.unlock();
+            }
+            if (!savePersons(snapshot)) {
+                lock.lock();
+                try {
+                    dirty = true; // Retry on the next flush
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Stops the background flusher and writes any pending changes
+    @Override
+    public void close() {
+        if (flushScheduler != null) {
+            flushScheduler.shutdown();
+        }
+        flush();
+        if (journal != null) {
+            journal.close();
         }
     }
 
     @Override
     public void addPerson(Person person) {
-        List<Person> persons = loadPersons();
-        persons.add(person);
-        savePersons(persons);
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            applyChange(ChangeJournal.Operation.ADD, withId(person).getId(), person);
+        } finally {
+            lock.unlock();
+        }
+        writeThrough();
         MyLogger.logInfo("Person added");
     }
 
+    @Override
+    public void addAll(Collection<Person> persons) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            for (Person person : persons) {
+                applyChange(ChangeJournal.Operation.ADD, withId(person).getId(), person);
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeThrough();
+    }
+
+    @Override
+    public void updateAll(Collection<Person> persons) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            for (Person person : persons) {
+                applyChange(ChangeJournal.Operation.UPDATE, withId(person).getId(), person);
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeThrough();
+    }
+
+    @Override
+    public UnitOfWork beginUnitOfWork() {
+        return unitsOfWork.begin();
+    }
+
     @Override
     public List<Person> getAllPersons() {
-        return loadPersons();
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            return new ArrayList<>(personCache);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public Person getPersonByName(String name) {
-        List<Person> persons = loadPersons();
-        return persons.stream().filter(person -> person.getName().equals(name)).findFirst().orElse(null);
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            return personCache.stream().filter(person -> person.getName().equals(name)).findFirst().orElse(null);
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public void updatePerson(Person person) {
-        List<Person> persons = loadPersons();
-        persons.removeIf(c -> c.getName().equals(person.getName())); // Remove the old person
-        persons.add(person);
-        savePersons(persons);
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            applyChange(ChangeJournal.Operation.UPDATE, withId(person).getId(), person);
+        } finally {
+            lock.unlock();
+        }
+        writeThrough();
     }
 
     @Override
     public void deletePerson(String name) {
-        List<Person> persons = loadPersons();
-        persons.removeIf(person -> person.getName().equals(name));
-        savePersons(persons);
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            List<Long> ids = personCache.stream().filter(person -> person.getName().equals(name)).map(Person::getId).toList();
+            for (long id : ids) {
+                applyChange(ChangeJournal.Operation.DELETE, id, null);
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeThrough();
+    }
+
+    @Override
+    public void deletePersonById(long id) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            applyChange(ChangeJournal.Operation.DELETE, id, null);
+        } finally {
+            lock.unlock();
+        }
+        writeThrough();
+    }
+
+    @Override
+    public Person getPersonById(long id) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            int position = positions.get(id);
+            return position >= 0 ? personCache.get(position) : null;
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
     public List<Person> getInfectedPersons() {
-        List<Person> persons = loadPersons();
-        return persons.stream()
-                .filter(person -> person.getHealthStatus().equals(HealthStatus.INFECTED))
-                .collect(Collectors.toList());
+        return findPersons(person -> person.getHealthStatus().equals(HealthStatus.INFECTED));
+    }
+
+    @Override
+    public List<Person> getPersonsByCity(String cityName) {
+        return findPersons(person -> cityName.equals(person.getCityName()));
+    }
+
+    // Filters the cache once it is resident; before that, streams the file and keeps only the matches,
+    // so a filtered query never loads the whole population. Nothing can be unflushed while the cache is cold.
+    public List<Person> findPersons(Predicate<Person> filter) {
+        lock.lock();
+        try {
+            if (!cacheLoaded && journal == null) {
+                File file = new File(filePath);
+                if (!file.exists()) {
+                    return new ArrayList<>();
+                }
+                List<Person> persons = JsonStreams.readList(objectMapper, file, Person.class, filter);
+                persons.forEach(Person::ensureId);
+                return persons;
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading persons from JSON: " + e.getMessage());
+            return new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            return personCache.stream().filter(filter).collect(Collectors.toList());
+        } finally {
+            lock.unlock();
+        }
     }
+
+    static final ChangeJournal.RecordCodec<Person> PERSON_CODEC = new ChangeJournal.RecordCodec<>() {
+        @Override
+        public void write(DataOutput out, Person person) throws IOException {
+            out.writeLong(person.getId());
+            out.writeUTF(person.getName());
+            out.writeShort(person.getAge());
+            out.writeByte(person.getHealthStatus().ordinal());
+            out.writeShort(person.getInfectionDuration());
+            out.writeUTF(person.getCityName() != null ? person.getCityName() : "");
+            out.writeShort(person.getRecoveryTime());
+        }
+
+        @Override
+        public Person read(DataInput in) throws IOException {
+            Person person = new Person();
+            person.setId(in.readLong());
+            person.setName(in.readUTF());
+            person.setAge(in.readShort());
+            person.setHealthStatus(HealthStatus.values()[in.readByte()]);
+            person.setInfectionDuration(in.readShort());
+            String cityName = in.readUTF();
+            person.setCityName(cityName.isEmpty() ? null : cityName);
+            person.setRecoveryTime(in.readShort());
+            person.ensureId();
+            return person;
+        }
+    };
 }
@@ -0,0 +1,71 @@
+package data;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Incremental reading and writing of top-level JSON arrays. Elements are bound one at a time, so only the
+ * elements a caller keeps are ever resident, and writing never builds an intermediate tree.
+ */
+public final class JsonStreams {
+
+    private JsonStreams() {
+    }
+
+    // Calls action for every element of the array in file that passes filter
+    public static <T> void forEach(ObjectMapper objectMapper, File file, Class<T> type,
+                                   Predicate<? super T> filter, Consumer<? super T> action) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(file)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return; // Empty file
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new IOException(file + " is not a JSON array.");
+            }
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                T element = objectMapper.readValue(parser, type);
+                if (filter.test(element)) {
+                    action.accept(element);
+                }
+            }
+            // Anything but the closing bracket means the array was cut off or holds something else
+            if (token == null) {
+                throw new IOException(file + " ends before its JSON array is closed.");
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new IOException(file + " has an array element that is not an object: " + token);
+            }
+        }
+    }
+
+    public static <T> List<T> readList(ObjectMapper objectMapper, File file, Class<T> type,
+                                       Predicate<? super T> filter) throws IOException {
+        List<T> elements = new ArrayList<>();
+        forEach(objectMapper, file, type, filter, elements::add);
+        return elements;
+    }
+
+    public static <T> void writeArray(ObjectMapper objectMapper, File file, Iterable<? extends T> elements) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(file, JsonEncoding.UTF8)) {
+            generator.writeStartArray();
+            for (T element : elements) {
+                writer.writeValue(generator, element);
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -1,14 +1,84 @@
 package data;
 
+import domain.person.HealthStatus;
 import domain.person.Person;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface PersonDao {
     void addPerson(Person person);
     List<Person> getAllPersons();
     Person getPersonByName(String name);
-    void updatePerson(Person person);
-    void deletePerson(String name);
+    Person getPersonById(long id);
+    void updatePerson(Person person); // Replaces the person with the same id
+    void deletePerson(String name); // Deletes everyone with this name
+    void deletePersonById(long id);
     List<Person> getInfectedPersons();
+
+    default List<Person> getPersonsByCity(String cityName) {
+        return getAllPersons().stream().filter(person -> cityName.equals(person.getCityName())).toList();
+    }
+
+    // The people with the given ids, in the same order; ids nobody has are skipped
+    default List<Person> getPersonsByIds(long[] ids) {
+        List<Person> persons = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Person person = getPersonById(id);
+            if (person != null) {
+                persons.add(person);
+            }
+        }
+        return persons;
+    }
+
+    // Number of people in each health status per city, zero for statuses nobody in the city has; people without
+    // a city are left out
+    default Map<String, Map<HealthStatus, Integer>> countByCityAndHealthStatus() {
+        Map<String, Map<HealthStatus, Integer>> counts = new HashMap<>();
+        for (Person person : getAllPersons()) {
+            if (person.getCityName() != null) {
+                counts.computeIfAbsent(person.getCityName(), city -> emptyCounts())
+                        .merge(person.getHealthStatus(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    static Map<HealthStatus, Integer> emptyCounts() {
+        Map<HealthStatus, Integer> counts = new EnumMap<>(HealthStatus.class);
+        for (HealthStatus status : HealthStatus.values()) {
+            counts.put(status, 0);
+        }
+        return counts;
+    }
+
+    default void addAll(Collection<Person> persons) {
+        try (UnitOfWork batch = beginUnitOfWork()) {
+            persons.forEach(this::addPerson);
+        }
+    }
+
+    default void updateAll(Collection<Person> persons) {
+        try (UnitOfWork batch = beginUnitOfWork()) {
+            persons.forEach(this::updatePerson);
+        }
+    }
+
+    // Changes made until the returned scope is closed are committed together
+    default UnitOfWork beginUnitOfWork() {
+        return this::flush;
+    }
+
+    // Persists any buffered changes; a no-op for stores that write through
+    default void flush() {}
+
+    // Persists any buffered changes and releases the store's files and connections; the store cannot be used afterwards
+    default void close() {
+        flush();
+    }
 }
@@ -0,0 +1,184 @@
+package data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import domain.city.City;
+import domain.person.Person;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * City store with one JSON file per city in a directory. Changes are buffered: {@link #flush()} rewrites only
+ * the cities marked dirty since the last flush, writing them in parallel, and removes the files of deleted cities.
+ */
+public class ShardedJsonCityDatabase implements CityDao {
+    private static final String SHARD_SUFFIX = ".json";
+
+    private final Map<String, City> cityCache = new LinkedHashMap<>();
+    private final Set<String> deletedCities = new HashSet<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final UnitOfWorkTracker unitsOfWork = new UnitOfWorkTracker(this::flush);
+    private boolean cacheLoaded = false;
+
+    public ShardedJsonCityDatabase(String directoryPath) {
+        this.directory = Paths.get(directoryPath);
+        this.objectMapper = new ObjectMapper();
+    }
+
+    private Path shardPath(String cityName) {
+        return directory.resolve(URLEncoder.encode(cityName, StandardCharsets.UTF_8) + SHARD_SUFFIX);
+    }
+
+    // Load cache from disk if not loaded
+    private void ensureCacheLoaded() {
+        lock.lock();
+        try {
+            if (!cacheLoaded) {
+                cityCache.clear();
+                Files.createDirectories(directory);
+                List<Path> shards;
+                try (Stream<Path> files = Files.list(directory)) {
+                    shards = files.filter(file -> file.getFileName().toString().endsWith(SHARD_SUFFIX)).sorted().toList();
+                }
+                for (Path shard : shards) {
+                    City city = objectMapper.readValue(shard.toFile(), City.class);
+                    city.getResidents().forEach(Person::ensureId);
+                    city.markClean();
+                    cityCache.put(city.getName(), city);
+                }
+                cacheLoaded = true;
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading cities from shards: " + e.getMessage());
+            cityCache.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void flush() {
+        ensureCacheLoaded();
+        flushLock.lock();
+        try {
+            List<City> dirtyCities = new ArrayList<>();
+            List<String> deleted;
+            lock.lock();
+            try {
+                for (City city : cityCache.values()) {
+                    if (city.isDirty()) {
+                        city.markClean(); // Cleared before writing, so a change made during the write is not lost
+                        dirtyCities.add(city);
+                    }
+                }
+                deleted = new ArrayList<>(deletedCities);
+                deletedCities.clear();
+            } finally {
+                lock.unlock();
+            }
+            dirtyCities.parallelStream().forEach(this::writeShard);
+            for (String name : deleted) {
+                Files.deleteIfExists(shardPath(name));
+            }
+        } catch (IOException e) {
+            System.err.println("Error deleting city shard: " + e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeShard(City city) {
+        Path shard = shardPath(city.getName());
+        Path tempShard = Paths.get(shard + ".tmp");
+        try {
+            objectMapper.writeValue(tempShard.toFile(), city);
+            Files.move(tempShard, shard, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error saving city " + city.getName() + " to JSON: " + e.getMessage());
+            city.markDirty(); // Retry on the next flush
+        }
+    }
+
+    @Override
+    public void addCity(City city) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            city.markDirty();
+            deletedCities.remove(city.getName());
+            cityCache.put(city.getName(), city);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateCity(City city) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            if (cityCache.get(city.getName()) != city) {
+                city.markDirty(); // A different instance replaces the cached one; setters track changes to the same one
+            }
+            cityCache.put(city.getName(), city);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public UnitOfWork beginUnitOfWork() {
+        return unitsOfWork.begin();
+    }
+
+    @Override
+    public List<City> getAllCities() {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            return new ArrayList<>(cityCache.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public City getCityByName(String name) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            return cityCache.get(name);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteCity(String name) {
+        ensureCacheLoaded();
+        lock.lock();
+        try {
+            if (cityCache.remove(name) != null) {
+                deletedCities.add(name);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
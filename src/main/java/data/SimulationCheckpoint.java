@@ -0,0 +1,209 @@
+package data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Everything a run needs to continue from the end of a simulated day: the run's parameters, the day reached and
+ * the day it ends on, and per city its rate, its connections and its residents' states. Random streams are keyed by
+ * seed, city and day, so the seed is their whole state.
+ * <p>
+ * On disk it is a magic number and version followed by the gzipped fields. Per-agent values are stored as
+ * columns, which compress well.
+ */
+public final class SimulationCheckpoint {
+    private static final int MAGIC = 0x4453434B; // "DSCK"
+    private static final int VERSION = 2; // 2 added active-set scheduling and the connections
+
+    // The state of one city's residents, in resident order
+    public static final class CityState {
+        public final String name;
+        public final double infectionRate;
+        public final String riskLevel;
+        public final long[] residentIds;
+        public final byte[] status;
+        public final int[] infectionDuration;
+        public final short[] recoveryTime;
+        public final int[] susceptibleOrder; // The columnar engine's draw order; null for the other engines
+        // Outgoing connections in graph order, which fixes the order imported infection is summed in;
+        // null when read from a version 1 checkpoint
+        public final String[] connectionTargets;
+        public final double[] connectionWeights;
+
+        public CityState(String name, double infectionRate, String riskLevel, long[] residentIds, byte[] status,
+                         int[] infectionDuration, short[] recoveryTime, int[] susceptibleOrder,
+                         String[] connectionTargets, double[] connectionWeights) {
+            this.name = name;
+            this.infectionRate = infectionRate;
+            this.riskLevel = riskLevel;
+            this.residentIds = residentIds;
+            this.status = status;
+            this.infectionDuration = infectionDuration;
+            this.recoveryTime = recoveryTime;
+            this.susceptibleOrder = susceptibleOrder;
+            this.connectionTargets = connectionTargets;
+            this.connectionWeights = connectionWeights;
+        }
+    }
+
+    public final long seed;
+    public final int currentDay; // Last simulated day
+    public final int endDay; // Last day of the run being checkpointed
+    public final String engineMode;
+    public final boolean interCityTransmission;
+    public final boolean activeSetScheduling;
+    public final double infectionRate;
+    public final int recoveryTime;
+    public final int initialInfected;
+    public final List<CityState> cities;
+
+    public SimulationCheckpoint(long seed, int currentDay, int endDay, String engineMode, boolean interCityTransmission,
+                                boolean activeSetScheduling, double infectionRate, int recoveryTime,
+                                int initialInfected, List<CityState> cities) {
+        this.seed = seed;
+        this.currentDay = currentDay;
+        this.endDay = endDay;
+        this.engineMode = engineMode;
+        this.interCityTransmission = interCityTransmission;
+        this.activeSetScheduling = activeSetScheduling;
+        this.infectionRate = infectionRate;
+        this.recoveryTime = recoveryTime;
+        this.initialInfected = initialInfected;
+        this.cities = List.copyOf(cities);
+    }
+
+    // Writes a new file next to the old one and swaps it in, so a crash never leaves a half-written checkpoint
+    public void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(tempPath))) {
+            DataOutputStream header = new DataOutputStream(file);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.flush();
+            DataOutputStream out = new DataOutputStream(new GZIPOutputStream(file));
+            out.writeLong(seed);
+            out.writeInt(currentDay);
+            out.writeInt(endDay);
+            out.writeUTF(engineMode);
+            out.writeBoolean(interCityTransmission);
+            out.writeBoolean(activeSetScheduling);
+            out.writeDouble(infectionRate);
+            out.writeInt(recoveryTime);
+            out.writeInt(initialInfected);
+            out.writeInt(cities.size());
+            for (CityState city : cities) {
+                out.writeUTF(city.name);
+                out.writeDouble(city.infectionRate);
+                out.writeUTF(city.riskLevel);
+                int size = city.residentIds.length;
+                out.writeInt(size);
+                for (long id : city.residentIds) {
+                    out.writeLong(id);
+                }
+                out.write(city.status, 0, size);
+                for (int duration : city.infectionDuration) {
+                    out.writeInt(duration);
+                }
+                for (short recovery : city.recoveryTime) {
+                    out.writeShort(recovery);
+                }
+                out.writeInt(city.susceptibleOrder != null ? city.susceptibleOrder.length : -1);
+                if (city.susceptibleOrder != null) {
+                    for (int agent : city.susceptibleOrder) {
+                        out.writeInt(agent);
+                    }
+                }
+                out.writeInt(city.connectionTargets.length);
+                for (int i = 0; i < city.connectionTargets.length; i++) {
+                    out.writeUTF(city.connectionTargets[i]);
+                    out.writeDouble(city.connectionWeights[i]);
+                }
+            }
+            out.close();
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static SimulationCheckpoint read(Path path) throws IOException {
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path))) {
+            DataInputStream header = new DataInputStream(file);
+            if (header.readInt() != MAGIC) {
+                throw new IOException("Not a simulation checkpoint: " + path);
+            }
+            int version = header.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported checkpoint version " + version + ": " + path);
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(file)));
+            long seed = in.readLong();
+            int currentDay = in.readInt();
+            int endDay = in.readInt();
+            String engineMode = in.readUTF();
+            boolean interCityTransmission = in.readBoolean();
+            boolean activeSetScheduling = version >= 2 && in.readBoolean(); // Version 1 runs could not have used it
+            double infectionRate = in.readDouble();
+            int recoveryTime = in.readInt();
+            int initialInfected = in.readInt();
+            int cityCount = in.readInt();
+            List<CityState> cities = new ArrayList<>(cityCount);
+            for (int c = 0; c < cityCount; c++) {
+                String name = in.readUTF();
+                double cityRate = in.readDouble();
+                String riskLevel = in.readUTF();
+                int size = in.readInt();
+                long[] ids = new long[size];
+                for (int i = 0; i < size; i++) {
+                    ids[i] = in.readLong();
+                }
+                byte[] status = new byte[size];
+                in.readFully(status);
+                int[] durations = new int[size];
+                for (int i = 0; i < size; i++) {
+                    durations[i] = in.readInt();
+                }
+                short[] recoveryTimes = new short[size];
+                for (int i = 0; i < size; i++) {
+                    recoveryTimes[i] = in.readShort();
+                }
+                int orderLength = in.readInt();
+                int[] order = null;
+                if (orderLength >= 0) {
+                    order = new int[orderLength];
+                    for (int i = 0; i < orderLength; i++) {
+                        order[i] = in.readInt();
+                    }
+                }
+                String[] targets = null;
+                double[] weights = null;
+                if (version >= 2) {
+                    int connectionCount = in.readInt();
+                    targets = new String[connectionCount];
+                    weights = new double[connectionCount];
+                    for (int i = 0; i < connectionCount; i++) {
+                        targets[i] = in.readUTF();
+                        weights[i] = in.readDouble();
+                    }
+                }
+                cities.add(new CityState(name, cityRate, riskLevel, ids, status, durations, recoveryTimes, order,
+                        targets, weights));
+            }
+            return new SimulationCheckpoint(seed, currentDay, endDay, engineMode, interCityTransmission,
+                    activeSetScheduling, infectionRate, recoveryTime, initialInfected, cities);
+        }
+    }
+}
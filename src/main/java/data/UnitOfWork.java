@@ -0,0 +1,10 @@
+package data;
+
+/**
+ * Scope that groups changes made through a DAO. While at least one unit of work is open the store only buffers
+ * changes; closing the outermost one commits them with a single write.
+ */
+public interface UnitOfWork extends AutoCloseable {
+    @Override
+    void close();
+}
@@ -0,0 +1,30 @@
+package data;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Counts open units of work for a store and runs its commit when the outermost one closes.
+// The count is shared by every thread using the store: while any thread has a unit open, changes made on other
+// threads are deferred too, and the commit runs on whichever thread closes the last unit.
+class UnitOfWorkTracker {
+    private final AtomicInteger openUnits = new AtomicInteger();
+    private final Runnable commit;
+
+    UnitOfWorkTracker(Runnable commit) {
+        this.commit = commit;
+    }
+
+    UnitOfWork begin() {
+        openUnits.incrementAndGet();
+        AtomicBoolean closed = new AtomicBoolean(false);
+        return () -> {
+            if (closed.compareAndSet(false, true) && openUnits.decrementAndGet() == 0) {
+                commit.run();
+            }
+        };
+    }
+
+    boolean isOpen() {
+        return openUnits.get() > 0;
+    }
+}
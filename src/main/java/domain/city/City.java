@@ -1,7 +1,9 @@
 package domain.city;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import domain.person.HealthStatus;
 import domain.person.Person;
 
 import java.util.*;
@@ -9,8 +11,18 @@ import java.util.*;
 public class City {
     @JsonProperty("name")
     private String name;
-    @JsonProperty("residents")
+    // Residents are persisted by the person store; a city only persists their ids.
+    // "residents" is still accepted on read for files that embedded whole people.
+    @JsonProperty(value = "residents", access = JsonProperty.Access.WRITE_ONLY)
     private List<Person> residents = new ArrayList<>(); // Initialize to avoid nulls
+    @JsonIgnore
+    private long[] unresolvedResidentIds = new long[0]; // Ids read from disk, not yet resolved into people
+    @JsonIgnore
+    private volatile boolean dirty = true; // Changed since it was last persisted
+    @JsonIgnore
+    private int residentsVersion; // Counts changes to who the residents are, not to their state
+    @JsonIgnore
+    private final int[] statusCounts = new int[HealthStatus.values().length]; // Residents per health status
     @JsonProperty("connections")
     private Map<String, Double> connections = new HashMap<>(); // Key is String (city name)
     @JsonProperty("riskLevel")
@@ -35,14 +47,102 @@ public class City {
     public double getPopulationDensity() { return populationDensity; }
 
     // Setters (Important for deserialization)
-    public void setResidents(List<Person> residents) { this.residents = residents; }
-    public void setConnections(Map<String, Double> connections) { this.connections = connections; }
-    public void setRiskLevel(RiskLevel riskLevel) { this.riskLevel = riskLevel; }
-    public void setInfectionRate(double infectionRate) { this.infectionRate = infectionRate; }
-    public void setPopulationDensity(double populationDensity) { this.populationDensity = populationDensity; }
-
-    public void addResident(Person resident) { this.residents.add(resident); }
-    public void addConnection(String cityName, Double weight) { this.connections.put(cityName, weight); }
+    public void setResidents(List<Person> residents) {
+        this.residents = residents;
+        this.unresolvedResidentIds = new long[0];
+        this.dirty = true;
+        this.residentsVersion++;
+        recountResidents();
+    }
+    public void setConnections(Map<String, Double> connections) { this.connections = connections; this.dirty = true; }
+    public void setRiskLevel(RiskLevel riskLevel) {
+        if (this.riskLevel != riskLevel) {
+            this.riskLevel = riskLevel;
+            this.dirty = true;
+        }
+    }
+    public void setInfectionRate(double infectionRate) {
+        if (this.infectionRate != infectionRate) {
+            this.infectionRate = infectionRate;
+            this.dirty = true;
+        }
+    }
+    public void setPopulationDensity(double populationDensity) { this.populationDensity = populationDensity; this.dirty = true; }
+
+    public void addResident(Person resident) {
+        this.residents.add(resident);
+        this.dirty = true;
+        this.residentsVersion++;
+        if (resident.getHealthStatus() != null) {
+            statusCounts[resident.getHealthStatus().ordinal()]++;
+        }
+    }
+    public void addConnection(String cityName, Double weight) { this.connections.put(cityName, weight); this.dirty = true; }
+    public void removeConnection(String cityName) {
+        if (this.connections.remove(cityName) != null) {
+            this.dirty = true;
+        }
+    }
+
+    // The same city with the given residents in place of its own, which must be in the same order
+    public City copyWith(List<Person> residents) {
+        City copy = new City(name, populationDensity);
+        copy.connections = new HashMap<>(connections);
+        copy.riskLevel = riskLevel;
+        copy.infectionRate = infectionRate;
+        copy.setResidents(residents);
+        if (residents.isEmpty()) {
+            copy.unresolvedResidentIds = unresolvedResidentIds.clone();
+        }
+        return copy;
+    }
+
+    @JsonProperty("residentIds")
+    public long[] getResidentIds() {
+        if (residents.isEmpty()) {
+            return unresolvedResidentIds;
+        }
+        return residents.stream().mapToLong(Person::getId).toArray();
+    }
+
+    @JsonProperty("residentIds")
+    public void setResidentIds(long[] residentIds) {
+        this.unresolvedResidentIds = residentIds;
+        this.dirty = true;
+        this.residentsVersion++;
+    }
+
+    // Changes whenever the residents are replaced or added to, so a store can skip comparing their ids otherwise
+    @JsonIgnore
+    public int getResidentsVersion() { return residentsVersion; }
+
+    // True when the city was read from disk and its residents still have to be looked up in the person store
+    @JsonIgnore
+    public boolean hasUnresolvedResidents() { return residents.isEmpty() && unresolvedResidentIds.length > 0; }
+
+    // Residents per health status, kept up to date by recordTransition, so reading them is O(1)
+    public int countOf(HealthStatus healthStatus) { return statusCounts[healthStatus.ordinal()]; }
+
+    // Call when residents change status; bulk changes can use recountResidents instead
+    public void recordTransition(HealthStatus from, HealthStatus to, int residentsChanged) {
+        statusCounts[from.ordinal()] -= residentsChanged;
+        statusCounts[to.ordinal()] += residentsChanged;
+    }
+
+    public void recountResidents() {
+        Arrays.fill(statusCounts, 0);
+        for (Person resident : residents) {
+            if (resident.getHealthStatus() != null) {
+                statusCounts[resident.getHealthStatus().ordinal()]++;
+            }
+        }
+    }
+
+    // Dirty tracking for stores that persist one city at a time
+    @JsonIgnore
+    public boolean isDirty() { return dirty; }
+    public void markDirty() { this.dirty = true; }
+    public void markClean() { this.dirty = false; }
 
     @Override
     public String toString() {
@@ -4,5 +4,18 @@ public enum RiskLevel {
     OUT_OF_DANGER,
     LOW,
     MEDIUM,
-    HIGH
+    HIGH;
+
+    // Classifies the share of a city's residents who are currently infected
+    public static RiskLevel fromInfectionRate(double infectionRate) {
+        if (infectionRate == 0.0) {
+            return OUT_OF_DANGER;
+        } else if (infectionRate <= 0.05) {
+            return LOW;
+        } else if (infectionRate <= 0.15) {
+            return MEDIUM;
+        } else {
+            return HIGH;
+        }
+    }
 }
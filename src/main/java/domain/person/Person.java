@@ -3,10 +3,15 @@ package domain.person;
 import domain.utils.JSONLoader;
 
 import java.util.List;
-import java.util.Random;
 import java.util.ResourceBundle;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
 
 public class Person {
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private long id; // Stable identity; cities refer to their residents by id
     private String name;
     private int age;
     private HealthStatus healthStatus;
@@ -31,6 +36,7 @@ public class Person {
     }
 
     public Person(String name, int age, String cityName) { // Add cityName to constructor
+        this.id = NEXT_ID.getAndIncrement();
         this.name = name;
         this.age = age;
         this.healthStatus = HealthStatus.SUSCEPTIBLE;
@@ -40,6 +46,47 @@ public class Person {
 
     }
 
+    // Another person with the same id and state, e.g. for a forked simulation that must not change this one
+    public Person copy() {
+        Person copy = new Person();
+        copy.id = id;
+        copy.name = name;
+        copy.age = age;
+        copy.healthStatus = healthStatus;
+        copy.infectionDuration = infectionDuration;
+        copy.cityName = cityName;
+        copy.recoveryTime = recoveryTime;
+        return copy;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    // For people read from storage: assigns an id to records written before ids existed,
+    // and makes sure ids handed out later never collide with this one
+    public void ensureId() {
+        if (id == 0) {
+            id = nextId();
+        } else {
+            reserveId(id);
+        }
+    }
+
+    // Hands out an id no other person has; stores use it for records written before ids existed
+    public static long nextId() {
+        return NEXT_ID.getAndIncrement();
+    }
+
+    // Makes sure ids handed out from now on are greater than the given one
+    public static void reserveId(long id) {
+        NEXT_ID.accumulateAndGet(id + 1, Math::max);
+    }
+
     public String getName() {
         return name;
     }
@@ -122,7 +169,10 @@ public class Person {
     }
 
     public static Person createRandomPerson(int maxAge, String cityName) {
-        Random random = new Random();
+        return createRandomPerson(maxAge, cityName, ThreadLocalRandom.current());
+    }
+
+    public static Person createRandomPerson(int maxAge, String cityName, RandomGenerator random) {
         int age = random.nextInt(maxAge + 1);
         String randomName;
         if (personNames != null && !personNames.isEmpty()) {
@@ -136,7 +186,8 @@ public class Person {
     @Override
     public String toString() {
         return "Person{" +
-                "name='" + name + '\'' +
+                "id=" + id +
+                ", name='" + name + '\'' +
                 ", age=" + age +
                 ", healthStatus=" + healthStatus +
                 ", infectionDuration=" + infectionDuration +
@@ -0,0 +1,124 @@
+package domain.utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from positive long keys to non-negative int values, such as person id to row.
+ * Uses linear probing over primitive arrays, so lookups never box and never allocate.
+ */
+public class LongIntIndex {
+    private static final long EMPTY = 0; // Keys are ids, which start at 1
+    private static final int ABSENT = -1;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntIndex() {
+        this(16);
+    }
+
+    public LongIntIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L; // Fibonacci hashing spreads consecutive ids
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // Returns the value for key, or -1 if absent. Key 0 is never present, since it marks empty slots.
+    public int get(long key) {
+        if (key == EMPTY) {
+            return ABSENT;
+        }
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == EMPTY) {
+                return ABSENT;
+            }
+            if (current == key) {
+                return values[slot];
+            }
+        }
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != ABSENT;
+    }
+
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key 0 is reserved.");
+        }
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            if (++size > keys.length * LOAD_FACTOR) {
+                values[slot] = value;
+                resize();
+                return;
+            }
+        }
+        values[slot] = value;
+    }
+
+    // Returns the removed value, or -1 if absent
+    public int remove(long key) {
+        if (key == EMPTY) {
+            return ABSENT;
+        }
+        int slot = hash(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return ABSENT;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int removed = values[slot];
+        // Shift later entries of the probe run back so no lookup stops early at the hole
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package domain.utils;
+
+import java.util.Arrays;
+
+/**
+ * Quantile sketch for non-negative values in the style of DDSketch. Values fall into logarithmic buckets
+ * (gamma^(i-1), gamma^i], where gamma = (1 + a) / (1 - a). Any quantile read back is then within relative error a
+ * of a value that was added. Memory follows the range of the values, not how many were added. Two sketches with
+ * the same accuracy merge by adding bucket counts, so partial sketches from several threads combine exactly.
+ */
+public final class QuantileSketch {
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private long zeroCount; // Values too small for a bucket, reported as 0
+    private long[] counts = new long[0]; // counts[k] holds bucket offset + k
+    private int offset;
+    private long count;
+
+    public QuantileSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1.");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void add(double value, long times) {
+        if (!(value >= 0)) {
+            throw new IllegalArgumentException("Only non-negative values can be added.");
+        }
+        if (value < Double.MIN_NORMAL) {
+            zeroCount += times;
+        } else {
+            int index = (int) Math.ceil(Math.log(value) / logGamma);
+            grow(index, index);
+            counts[index - offset] += times;
+        }
+        count += times;
+    }
+
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Only sketches with the same accuracy can be merged.");
+        }
+        if (other.counts.length > 0) {
+            grow(other.offset, other.offset + other.counts.length - 1);
+            for (int k = 0; k < other.counts.length; k++) {
+                counts[other.offset + k - offset] += other.counts[k];
+            }
+        }
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    // Makes room for buckets low to high
+    private void grow(int low, int high) {
+        if (counts.length == 0) {
+            offset = low;
+            counts = new long[Math.max(high - low + 1, 8)];
+            return;
+        }
+        int newLow = Math.min(low, offset);
+        int newHigh = Math.max(high, offset + counts.length - 1);
+        if (newLow == offset && newHigh < offset + counts.length) {
+            return;
+        }
+        long[] grown = new long[Math.max(newHigh - newLow + 1, counts.length * 2)];
+        System.arraycopy(counts, 0, grown, offset - newLow, counts.length);
+        counts = grown;
+        offset = newLow;
+    }
+
+    // The value at quantile q (0 to 1), or NaN when nothing was added
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1.");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        if (rank < zeroCount) {
+            return 0.0;
+        }
+        long seen = zeroCount;
+        for (int k = 0; k < counts.length; k++) {
+            seen += counts[k];
+            if (seen > rank) {
+                // Middle of the bucket in relative terms, which bounds the error by relativeAccuracy
+                return 2 * Math.pow(gamma, offset + k) / (gamma + 1);
+            }
+        }
+        return 2 * Math.pow(gamma, offset + counts.length - 1) / (gamma + 1);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        zeroCount = 0;
+        count = 0;
+    }
+}
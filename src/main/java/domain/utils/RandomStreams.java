@@ -0,0 +1,58 @@
+package domain.utils;
+
+import java.util.SplittableRandom;
+
+/**
+ * Independent random streams derived from one seed. Each stream is keyed by a city name and a day, so a city's
+ * draws do not depend on how many threads run the simulation or in which order cities are processed.
+ */
+public final class RandomStreams {
+    // Setup streams, kept apart from the streams of simulated days (which start at 1)
+    public static final int DENSITY = -1;
+    public static final int POPULATION = -2;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    // Streams from a fresh seed, for runs that do not need to be reproduced
+    public static RandomStreams unseeded() {
+        return new RandomStreams(new SplittableRandom().nextLong());
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Another independent family of streams, e.g. for one replicate of an ensemble
+    public RandomStreams derive(long key) {
+        return new RandomStreams(mix(mix(seed) + key * GOLDEN_GAMMA));
+    }
+
+    // The stream for one city on one simulated day, or for one of the setup constants above
+    public SplittableRandom forCity(String cityName, int day) {
+        long key = mix(mix(seed) + nameKey(cityName) * GOLDEN_GAMMA);
+        key = mix(key + day * GOLDEN_GAMMA);
+        return new SplittableRandom(key);
+    }
+
+    // 64-bit key over every character of the name; String.hashCode has 32 bits and collides for names like "Aa" and "BB"
+    private static long nameKey(String name) {
+        long key = name.length();
+        for (int i = 0; i < name.length(); i++) {
+            key = mix(key + name.charAt(i) * GOLDEN_GAMMA);
+        }
+        return key;
+    }
+
+    // SplitMix64 finalizer, so nearby keys give unrelated seeds
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,15 +1,27 @@
 package presentation;
 
 import data.CityDao;
+import data.ColumnarPersonDatabase;
+import data.H2CityDatabase;
+import data.H2PersonDatabase;
 import data.JsonCityDatabase;
 import data.JsonPersonDatabase;
 import data.PersonDao;
+import data.ShardedJsonCityDatabase;
 import domain.city.City;
 import domain.person.Person;
 import domain.utils.MyLogger;
 import service.CityService;
 import service.Graph;
+import service.engine.AggregateEngine;
+import service.engine.EngineMode;
+import service.engine.EnsembleRunner;
+import service.engine.ParameterSweep;
+import service.engine.SweepResults;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.logging.Logger;
 
@@ -41,6 +53,8 @@ public class CommandLineMenu {
             if (!isInitialized) {
                 if (choice == idx++) {
                     initializeSimulation();
+                } else if (choice == idx++) {
+                    resumeFromCheckpoint();
                 } else if (choice == idx++) {
                     toggleLogging();
                 } else if (choice == idx++) {
@@ -56,6 +70,14 @@ public class CommandLineMenu {
                     runSimulation();
                 } else if (choice == idx++) {
                     runSimulationStepByStep();
+                } else if (choice == idx++) {
+                    runEnsemble();
+                } else if (choice == idx++) {
+                    runSweep();
+                } else if (choice == idx++) {
+                    resumeFromCheckpoint();
+                } else if (choice == idx++) {
+                    compareLockdown();
                 } else if (choice == idx++) {
                     displayGraph();
                 } else if (choice == idx++) {
@@ -90,6 +112,10 @@ public class CommandLineMenu {
         System.out.println("\033[1;35m2. Toggle Logging:\033[0m Turns logging on or off.");
         System.out.println("\033[1;35m3. Run Simulation (all days):\033[0m Runs the simulation for a specified number of days with custom infection rate, recovery time, and initial infected.");
         System.out.println("\033[1;35m4. Run Simulation Step-by-Step:\033[0m Advance the simulation one day at a time, viewing summary stats after each day.");
+        System.out.println("\033[1;35mRun Ensemble:\033[0m Runs many seeded replicates of the current scenario and shows the 5%, 50% and 95% quantiles of infected people per city.");
+        System.out.println("\033[1;35mRun Parameter Sweep:\033[0m Runs every combination of infection rate, recovery time and initial infected over the given ranges and writes one CSV row per combination.");
+        System.out.println("\033[1;35mResume From Checkpoint:\033[0m Continues an interrupted run from its last checkpoint (see checkpointIntervalDays). Before initializing, it loads the saved cities and people instead of creating new ones, e.g. after a crash.");
+        System.out.println("\033[1;35mCompare Lockdown:\033[0m Runs two branches from the current day, one as is and one with a city cut off from the others. The simulation itself is not changed.");
         System.out.println("\033[1;35m5. Display Graph:\033[0m Shows the current city graph.");
         System.out.println("\033[1;35m6. Find Shortest Path:\033[0m Finds the shortest path between two cities.");
         System.out.println("\033[1;35m7. Display Sorted Population:\033[0m Shows cities sorted by population.");
@@ -106,12 +132,17 @@ public class CommandLineMenu {
         int idx = 1;
         if (!isInitialized) {
             System.out.printf("%d. Initialize Simulation (Cities, Population, Graph)\n", idx++);
+            System.out.printf("%d. Resume From Checkpoint (Saved Cities and People)\n", idx++);
             System.out.printf("%d. Toggle Logging (Currently: %s)\n", idx++, MyLogger.isEnabled() ? "ON" : "OFF");
             System.out.printf("%d. Help/About\n", idx++);
             System.out.printf("%d. Exit\n", idx++);
         } else {
             System.out.printf("%d. Run Simulation (all days)\n", idx++);
             System.out.printf("%d. Run Simulation Step-by-Step\n", idx++);
+            System.out.printf("%d. Run Ensemble (5%%/50%%/95%% infected per city)\n", idx++);
+            System.out.printf("%d. Run Parameter Sweep\n", idx++);
+            System.out.printf("%d. Resume From Checkpoint\n", idx++);
+            System.out.printf("%d. Compare Lockdown (What-If Branch)\n", idx++);
             System.out.printf("%d. Display City Graph (Breadth-First Traversal)\n", idx++);
             System.out.printf("%d. Find Shortest Path Between Cities\n", idx++);
             System.out.printf("%d. Find All Shortest Paths & Path Risks\n", idx++);
@@ -274,6 +305,142 @@ public class CommandLineMenu {
         System.out.println("Step-by-step simulation ended.");
     }
 
+    private void runEnsemble() {
+        if (!isInitialized) {
+            System.out.println("Please initialize the simulation first (Option 1).");
+            return;
+        }
+        System.out.print("\033[1;33mEnter the number of days to simulate:\033[0m ");
+        int days = readPositiveInt();
+        System.out.print("Enter the number of replicates: ");
+        int replicates = readPositiveInt();
+        Map<String, double[]> finalDay = new LinkedHashMap<>();
+        simulation.runEnsemble(days, replicates, (day, cities, infected) -> {
+            for (int i = 0; i < cities.size(); i++) {
+                double[] bands = new double[EnsembleRunner.QUANTILES.length];
+                for (int q = 0; q < bands.length; q++) {
+                    bands[q] = infected[i].quantile(EnsembleRunner.QUANTILES[q]);
+                }
+                MyLogger.logInfo(String.format("Day %d %s infected p05=%.0f p50=%.0f p95=%.0f",
+                        day, cities.get(i), bands[0], bands[1], bands[2]));
+                finalDay.put(cities.get(i), bands);
+            }
+        });
+        System.out.printf("\n\033[1;36mInfected after %d day(s), %d replicates\033[0m\n", days, replicates);
+        System.out.printf("%-12s %10s %10s %10s\n", "City", "5%", "50%", "95%");
+        for (Map.Entry<String, double[]> entry : finalDay.entrySet()) {
+            double[] bands = entry.getValue();
+            System.out.printf("%-12s %10.0f %10.0f %10.0f\n", entry.getKey(), bands[0], bands[1], bands[2]);
+        }
+    }
+
+    private void runSweep() {
+        if (!isInitialized) {
+            System.out.println("Please initialize the simulation first (Option 1).");
+            return;
+        }
+        System.out.print("\033[1;33mEnter the number of days to simulate:\033[0m ");
+        int days = readPositiveInt();
+        System.out.print("Enter infection rates as 'from to step' (e.g., 0.05 0.3 0.05): ");
+        double[] rate = readRange();
+        System.out.print("Enter recovery times in days as 'from to step' (e.g., 7 21 7): ");
+        double[] recovery = readRange();
+        System.out.print("Enter initial infected per city as 'from to step' (e.g., 1 10 3): ");
+        double[] seeded = readRange();
+        SweepResults results = simulation.runSweep(days,
+                ParameterSweep.range(rate[0], rate[1], rate[2]),
+                ParameterSweep.range((int) recovery[0], (int) recovery[1], Math.max((int) recovery[2], 1)),
+                ParameterSweep.range((int) seeded[0], (int) seeded[1], Math.max((int) seeded[2], 1)));
+        String outputPath = ResourceBundle.getBundle("strings").getString("sweepOutputPath");
+        try {
+            results.writeCsv(Paths.get(outputPath));
+            System.out.printf("\033[1;32m[✓] %d combination(s) written to %s\033[0m\n", results.size(), outputPath);
+        } catch (IOException e) {
+            System.err.println("Error writing sweep results: " + e.getMessage());
+        }
+    }
+
+    private void resumeFromCheckpoint() {
+        String checkpointPath = ResourceBundle.getBundle("strings").getString("checkpointPath");
+        if (!Files.exists(Paths.get(checkpointPath))) {
+            System.out.println("No checkpoint found at " + checkpointPath + ".");
+            return;
+        }
+        // After a restart, the checkpointed people are the ones in the stores; initializing would replace them
+        if (!isInitialized) {
+            if (!simulation.loadSaved()) {
+                System.out.println("No saved cities found. Please initialize the simulation first (Option 1).");
+                return;
+            }
+            isInitialized = true; // The saved state can be simulated even if the checkpoint does not fit it
+        }
+        if (!simulation.resume(checkpointPath)) {
+            return;
+        }
+        simulation.printSummaryStatistics();
+        System.out.printf("\033[1;32m[✓] Resumed up to day %d.\033[0m\n", simulation.getCurrentDay());
+    }
+
+    private void compareLockdown() {
+        if (!isInitialized) {
+            System.out.println("Please initialize the simulation first (Option 1).");
+            return;
+        }
+        System.out.print("Enter the city to lock down: ");
+        String city = scanner.nextLine().trim();
+        if (simulation.getCityService().getCityByName(city) == null) {
+            System.out.println("City with name " + city + " not found.");
+            return;
+        }
+        System.out.print("\033[1;33mEnter the number of days to simulate:\033[0m ");
+        int days = readPositiveInt();
+        Simulation baseline = simulation.fork();
+        Simulation lockdown = simulation.fork();
+        lockdown.closeConnections(city);
+        baseline.runSimulation(days);
+        lockdown.runSimulation(days);
+        System.out.printf("\n\033[1;36mWithout lockdown, day %d\033[0m", baseline.getCurrentDay());
+        baseline.printSummaryStatistics();
+        System.out.printf("\n\033[1;36mWith %s locked down, day %d\033[0m", city, lockdown.getCurrentDay());
+        lockdown.printSummaryStatistics();
+    }
+
+    // Three numbers: from, to and a positive step, with from <= to
+    private double[] readRange() {
+        while (true) {
+            String[] parts = scanner.nextLine().trim().split("\\s+");
+            try {
+                if (parts.length == 3) {
+                    double from = Double.parseDouble(parts[0]);
+                    double to = Double.parseDouble(parts[1]);
+                    double step = Double.parseDouble(parts[2]);
+                    if (from >= 0 && from <= to && step > 0) {
+                        return new double[]{from, to, step};
+                    }
+                }
+                System.out.println("Please enter three numbers: from, to (not below from) and a positive step.");
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid input. Please enter valid numbers.");
+            }
+        }
+    }
+
+    private int readPositiveInt() {
+        int value = -1;
+        while (value <= 0) {
+            String input = scanner.nextLine();
+            try {
+                value = Integer.parseInt(input.trim());
+                if (value <= 0) {
+                    System.out.println("Please enter a positive number.");
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid input. Please enter a valid number.");
+            }
+        }
+        return value;
+    }
+
     private void displayGraph() {
         if (!isInitialized) {
             System.out.println("Please initialize the simulation first (Option 1).");
@@ -398,13 +565,43 @@ public class CommandLineMenu {
 
     public static void main(String[] args) throws CityService.CityAlreadyExistsException {
         ResourceBundle path = ResourceBundle.getBundle("strings");
-        PersonDao personDao = new JsonPersonDatabase(path.getString("peoplesPath"));
-        CityDao cityDao = new JsonCityDatabase(path.getString("citiesPath"));
+        long compactionThreshold = Long.parseLong(path.getString("journalCompactionThresholdBytes"));
+        PersonDao personDao;
+        if (path.getString("personStore").equals("columnar")) {
+            personDao = new ColumnarPersonDatabase(path.getString("peoplesColumnarPath"));
+        } else if (path.getString("personStore").equals("h2")) {
+            personDao = new H2PersonDatabase(path.getString("h2DatabasePath"));
+        } else {
+            personDao = new JsonPersonDatabase(path.getString("peoplesPath"),
+                    Long.parseLong(path.getString("peoplesFlushIntervalMillis")), compactionThreshold);
+        }
+        CityDao cityDao;
+        if (path.getString("cityStore").equals("h2")) {
+            cityDao = new H2CityDatabase(path.getString("h2DatabasePath"));
+        } else if (path.getString("cityStore").equals("sharded")) {
+            cityDao = new ShardedJsonCityDatabase(path.getString("citiesShardPath"));
+        } else if (compactionThreshold > 0) {
+            cityDao = new JsonCityDatabase(path.getString("citiesPath"), compactionThreshold);
+        } else {
+            cityDao = new JsonCityDatabase(path.getString("citiesPath"));
+        }
 
         Simulation simulation = new Simulation(cityDao, personDao);
+        simulation.setEngineMode(EngineMode.valueOf(path.getString("engineMode").trim().toUpperCase()));
+        simulation.setAggregateStep(AggregateEngine.Step.valueOf(path.getString("aggregateStep").trim().toUpperCase()));
+        simulation.setParallelism(Integer.parseInt(path.getString("simulationParallelism")));
+        simulation.setActiveSetScheduling(Boolean.parseBoolean(path.getString("activeSetScheduling").trim()));
+        simulation.setVectorizedRecovery(Boolean.parseBoolean(path.getString("vectorizedRecovery").trim()));
+        simulation.setCheckpointing(Integer.parseInt(path.getString("checkpointIntervalDays").trim()), path.getString("checkpointPath"));
+        String randomSeed = path.getString("randomSeed").trim();
+        if (!randomSeed.isEmpty()) {
+            simulation.setRandomSeed(Long.parseLong(randomSeed));
+        }
         CommandLineMenu menu = new CommandLineMenu(simulation);
         System.out.println("Welcome to the Disease Spread Simulation!");
         menu.runMenu();
+        personDao.close();
+        cityDao.close();
         System.out.println("Thank you for using the simulation. Goodbye!");
     }
 }
@@ -1,19 +1,64 @@
 package presentation;
 
+import data.CheckpointWriter;
 import data.CityDao;
+import data.CopyOnWriteCityDao;
 import data.PersonDao;
+import data.SimulationCheckpoint;
+import data.UnitOfWork;
 import service.CityService;
+import service.Graph;
 import service.PopulationManager;
+import service.engine.ActiveCities;
+import service.engine.AgentEngine;
+import service.engine.AggregateEngine;
+import service.engine.CityAgents;
+import service.engine.CityPopulation;
+import service.engine.CouplingOperator;
+import service.engine.EnsembleRunner;
+import service.engine.EngineMode;
+import service.engine.OffHeapPopulationEngine;
+import service.engine.ParameterSweep;
+import service.engine.PopulationEngine;
+import service.engine.SweepResults;
 import domain.utils.MyLogger;
+import domain.city.City;
 import domain.city.RiskLevel;
+import domain.person.HealthStatus;
+import domain.person.Person;
 
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 public class Simulation {
+    private static final double SPREAD_PROBABILITY = 0.1; // Daily chance of local infection per susceptible resident
+
     private double infectionRate = 0.1;
     private int recoveryTime = 14;
     private int initialInfected = 1;
+    private EngineMode engineMode = EngineMode.OBJECTS;
+    private AggregateEngine.Step aggregateStep = AggregateEngine.Step.CHAIN_BINOMIAL;
+    private int parallelism = 1; // Cities ticked concurrently each day; 1 runs them in order
+    private int currentDay = 0; // Last simulated day
+    private boolean interCityTransmission = true; // Infection also travels along weighted connections
+    private boolean activeSetScheduling = false; // Tick only cities with infections in or next to them
+    private boolean vectorizedRecovery = false; // Vector API recovery step in EngineMode.OFF_HEAP
+    private int checkpointInterval = 0; // Days between checkpoints; 0 turns them off
+    private CheckpointWriter checkpointWriter;
+    private final List<WeakReference<CopyOnWriteCityDao>> branches = new ArrayList<>(); // Forks still sharing pages
 
+    private final CityDao cityDao;
+    private final PersonDao personDao;
     private final PopulationManager populationManager;
     private final CityService cityService;
     // Unified city list: includes all cities referenced in connections
@@ -23,16 +68,126 @@ public class Simulation {
     );
 
     public Simulation(CityDao cityDao, PersonDao personDao) {
+        this.cityDao = cityDao;
+        this.personDao = personDao;
         this.cityService = new CityService(cityDao);
         this.populationManager = new PopulationManager(cityDao, personDao, cityService);
     }
 
+    private Simulation(CopyOnWriteCityDao cityDao, Simulation parent) {
+        this.cityDao = cityDao;
+        this.personDao = cityDao.getPersonDao();
+        this.cityService = new CityService(cityDao);
+        this.populationManager = parent.populationManager.fork(cityDao, personDao, cityService);
+    }
+
+    // A branch of this simulation at the current day, e.g. to try an intervention from here on. The branch has
+    // the same parameters and random streams, so without changes it continues exactly as this simulation would.
+    // It shares each city and its residents with this simulation until it first touches them, and only keeps its
+    // changes in memory. Checkpointing is not inherited. Running the branch seeds the initial infections and ticks
+    // every city with infected or susceptible residents, so its first simulated day copies all of those cities;
+    // only cities where nothing can change stay shared.
+    public Simulation fork() {
+        CopyOnWriteCityDao branchCities = new CopyOnWriteCityDao(cityDao, personDao);
+        Simulation branch = new Simulation(branchCities, this);
+        branch.setSimulationParameters(infectionRate, recoveryTime, initialInfected);
+        branch.engineMode = engineMode;
+        branch.aggregateStep = aggregateStep;
+        branch.parallelism = parallelism;
+        branch.currentDay = currentDay;
+        branch.interCityTransmission = interCityTransmission;
+        branch.activeSetScheduling = activeSetScheduling;
+        branch.vectorizedRecovery = vectorizedRecovery;
+        synchronized (branches) {
+            branches.add(new WeakReference<>(branchCities));
+        }
+        return branch;
+    }
+
+    // Cuts the city off from every other city, e.g. to model a lockdown in a branch
+    public void closeConnections(String city) {
+        detachBranches();
+        populationManager.closeConnections(city);
+    }
+
+    // Gives every live branch its own copy of the pages it still shares, before this simulation changes them
+    private void detachBranches() {
+        List<CopyOnWriteCityDao> live = new ArrayList<>();
+        synchronized (branches) {
+            for (WeakReference<CopyOnWriteCityDao> reference : branches) {
+                CopyOnWriteCityDao branch = reference.get();
+                if (branch != null) {
+                    live.add(branch);
+                }
+            }
+            branches.clear();
+        }
+        live.forEach(CopyOnWriteCityDao::detach);
+    }
+
     public void setSimulationParameters(double infectionRate, int recoveryTime, int initialInfected) {
         this.infectionRate = infectionRate;
         this.recoveryTime = recoveryTime;
         this.initialInfected = initialInfected;
     }
 
+    public void setEngineMode(EngineMode engineMode) {
+        this.engineMode = engineMode;
+    }
+
+    public EngineMode getEngineMode() {
+        return engineMode;
+    }
+
+    // How EngineMode.AGGREGATE advances its counts
+    public void setAggregateStep(AggregateEngine.Step aggregateStep) {
+        this.aggregateStep = aggregateStep;
+    }
+
+    // Fixes the random streams, so runs with the same seed give identical results at any parallelism
+    public void setRandomSeed(long seed) {
+        populationManager.setRandomSeed(seed);
+    }
+
+    public void setInterCityTransmission(boolean interCityTransmission) {
+        this.interCityTransmission = interCityTransmission;
+    }
+
+    // Cities without infected residents or infected neighbours are skipped for the day. Local spread does not
+    // depend on the number infected, so this changes results for cities that are free of infection; off by default.
+    public void setActiveSetScheduling(boolean activeSetScheduling) {
+        this.activeSetScheduling = activeSetScheduling;
+    }
+
+    // Only takes effect when the JVM was started with --add-modules jdk.incubator.vector
+    public void setVectorizedRecovery(boolean vectorizedRecovery) {
+        if (vectorizedRecovery && ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            System.err.println("Error enabling vectorized recovery: jdk.incubator.vector is not available, using the scalar loop");
+            vectorizedRecovery = false;
+        }
+        this.vectorizedRecovery = vectorizedRecovery;
+    }
+
+    // Saves the run's state every intervalDays days to the given file, for resume after a crash. Aggregate runs
+    // hold only per-city counts, not the people a checkpoint is made of, so they are never checkpointed.
+    public void setCheckpointing(int intervalDays, String path) {
+        this.checkpointInterval = Math.max(intervalDays, 0);
+        this.checkpointWriter = intervalDays > 0 ? new CheckpointWriter(path) : null;
+    }
+
+    public int getCurrentDay() {
+        return currentDay;
+    }
+
+    // Values below 1 use every available core
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
     public void printSummaryStatistics() {
         // Box-drawing characters for table borders
         String horizontal = "─".repeat(62);
@@ -46,16 +201,11 @@ public class Simulation {
         System.out.println(header);
         System.out.println(sep);
         for (String city : CITIES) {
-            var c = cityService.getCityByName(city);
+            var c = cityService.viewCityByName(city);
             if (c != null && c.getResidents() != null) {
-                int susceptible = 0, infected = 0, recovered = 0;
-                for (var p : c.getResidents()) {
-                    switch (p.getHealthStatus()) {
-                        case SUSCEPTIBLE: susceptible++; break;
-                        case INFECTED: infected++; break;
-                        case RECOVERED: recovered++; break;
-                    }
-                }
+                int susceptible = c.countOf(HealthStatus.SUSCEPTIBLE);
+                int infected = c.countOf(HealthStatus.INFECTED);
+                int recovered = c.countOf(HealthStatus.RECOVERED);
                 // Color infected in red if not zero, else green
                 String infectedStr = infected > 0 ? String.format("\033[1;31m%d\033[0m", infected) : String.format("\033[1;32m%d\033[0m", infected);
                 System.out.printf("│ %-12s │ %12d │ %12s │ %12d │\n", city, susceptible, infectedStr, recovered);
@@ -88,27 +238,40 @@ public class Simulation {
 
     public void initialize(){
         populationManager.initializeCities(CITIES, cityService);
+        populationManager.loadResidents();
+    }
+
+    // Uses the cities, people and connections already in the stores instead of creating new ones, e.g. to resume
+    // a checkpoint after a restart. Returns false when the stores are empty.
+    public boolean loadSaved() {
+        return populationManager.loadSavedCities();
     }
 
     public void initializePopulations() {
-        for (String city : CITIES) {
-            populationManager.initializePopulation(city, 25, 100);
+        detachBranches();
+        try (UnitOfWork batch = populationManager.beginUnitOfWork()) {
+            for (String city : CITIES) {
+                populationManager.initializePopulation(city, 25, 100);
+            }
         }
     } // Now always tries to initialize population for every city
 
     public void initializeConnections(){
-        // If you want bidirectional connections, add both directions
-        addBidirectionalConnection("Dhaka", "Chittagong", 0.5);
-        addBidirectionalConnection("Dhaka", "Sylhet", 0.3);
-        addBidirectionalConnection("Chittagong", "Khulna", 0.2);
-        addBidirectionalConnection("Rajshahi", "Khulna", 0.7);
-        addBidirectionalConnection("Dhaka", "Khulna", 0.1);
-        addBidirectionalConnection("Sylhet", "Barishal", 0.6);
-        addBidirectionalConnection("Rangpur", "Rajshahi", 0.4);
-        addBidirectionalConnection("Comilla", "Chittagong", 0.8);
-        addBidirectionalConnection("Mymensingh", "Dhaka", 0.9);
-        addBidirectionalConnection("Gazipur", "Mymensingh", 0.2);
-        addBidirectionalConnection("Gazipur", "Dhaka", 0.6);
+        detachBranches();
+        try (UnitOfWork batch = populationManager.beginUnitOfWork()) {
+            // If you want bidirectional connections, add both directions
+            addBidirectionalConnection("Dhaka", "Chittagong", 0.5);
+            addBidirectionalConnection("Dhaka", "Sylhet", 0.3);
+            addBidirectionalConnection("Chittagong", "Khulna", 0.2);
+            addBidirectionalConnection("Rajshahi", "Khulna", 0.7);
+            addBidirectionalConnection("Dhaka", "Khulna", 0.1);
+            addBidirectionalConnection("Sylhet", "Barishal", 0.6);
+            addBidirectionalConnection("Rangpur", "Rajshahi", 0.4);
+            addBidirectionalConnection("Comilla", "Chittagong", 0.8);
+            addBidirectionalConnection("Mymensingh", "Dhaka", 0.9);
+            addBidirectionalConnection("Gazipur", "Mymensingh", 0.2);
+            addBidirectionalConnection("Gazipur", "Dhaka", 0.6);
+        }
     }
 
     private void addBidirectionalConnection(String cityA, String cityB, double weight) {
@@ -117,48 +280,333 @@ public class Simulation {
     }
 
     public void runSimulation(int days) {
-        // On first run, initialize infected people and set recovery time
+        detachBranches();
+        seedInitialInfections();
+        runDays(currentDay + days, Map.of());
+    }
+
+    // Continues the run saved in a checkpoint up to the day it was meant to end. The cities and people must be
+    // the ones the checkpoint was taken from, e.g. loaded with loadSaved after a restart; their states, the
+    // connections and the run's settings are taken from the checkpoint, so the result matches the uninterrupted
+    // run exactly. Returns false when the checkpoint cannot be used.
+    public boolean resume(String checkpointPath) {
+        SimulationCheckpoint checkpoint;
+        try {
+            checkpoint = SimulationCheckpoint.read(Paths.get(checkpointPath));
+        } catch (IOException e) {
+            System.err.println("Error reading checkpoint: " + e.getMessage());
+            return false;
+        }
+        detachBranches();
+        for (SimulationCheckpoint.CityState state : checkpoint.cities) {
+            var c = cityService.getCityByName(state.name);
+            if (c == null || !Arrays.equals(c.getResidentIds(), state.residentIds)) {
+                System.err.println("Error resuming: the residents of " + state.name + " do not match the checkpoint");
+                return false;
+            }
+        }
+        Map<String, int[]> susceptibleOrders = new HashMap<>();
+        try (UnitOfWork batch = populationManager.beginUnitOfWork()) {
+            for (SimulationCheckpoint.CityState state : checkpoint.cities) {
+                populationManager.restore(state);
+                if (state.susceptibleOrder != null) {
+                    susceptibleOrders.put(state.name, state.susceptibleOrder);
+                }
+            }
+        }
+        setSimulationParameters(checkpoint.infectionRate, checkpoint.recoveryTime, checkpoint.initialInfected);
+        engineMode = EngineMode.valueOf(checkpoint.engineMode);
+        interCityTransmission = checkpoint.interCityTransmission;
+        activeSetScheduling = checkpoint.activeSetScheduling;
+        populationManager.setRandomSeed(checkpoint.seed);
+        currentDay = checkpoint.currentDay;
+        runDays(checkpoint.endDay, susceptibleOrders);
+        return true;
+    }
+
+    // Simulates the days after currentDay up to and including endDay. susceptibleOrders restores the columnar
+    // engine's draw order per city when resuming.
+    private void runDays(int endDay, Map<String, int[]> susceptibleOrders) {
+        AgentEngine engine = switch (engineMode) {
+            case COLUMNAR -> {
+                PopulationEngine columnar = populationManager.createPopulationEngine(CITIES, currentDay + 1);
+                susceptibleOrders.forEach((city, order) -> columnar.getPopulation(city).setSusceptibleOrder(order));
+                yield columnar;
+            }
+            case OFF_HEAP -> {
+                OffHeapPopulationEngine offHeap = populationManager.createOffHeapPopulationEngine(CITIES);
+                offHeap.setVectorizedRecovery(vectorizedRecovery);
+                yield offHeap;
+            }
+            default -> null;
+        };
+        CouplingOperator coupling = interCityTransmission ? populationManager.createCouplingOperator(CITIES) : null;
+        if (engineMode == EngineMode.AGGREGATE) {
+            if (checkpointWriter != null) {
+                System.err.println("Error checkpointing: aggregate runs cannot be checkpointed, this run writes none");
+            }
+            runAggregate(endDay - currentDay, coupling);
+            return;
+        }
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        double[] infectedFraction = new double[CITIES.size()];
+        int[] allCities = IntStream.range(0, CITIES.size()).toArray();
+        ActiveCities active = activeSetScheduling ? new ActiveCities(CITIES.size(), coupling) : null;
+        for (int i = 0; i < CITIES.size(); i++) {
+            infectedFraction[i] = infectedFraction(engine, CITIES.get(i));
+            if (active != null) {
+                active.update(i, infectedFraction[i] > 0);
+            }
+        }
+        if (engine == null) {
+            populationManager.scheduleRecoveries(CITIES, currentDay + 1);
+        }
+        try {
+            while (currentDay < endDay) {
+                int day = ++currentDay; // Days keep counting across runs, so each gets its own random streams
+                int[] ticked = active != null ? active.toArray() : allCities;
+                // One commit per store at the end of each simulated day
+                try (UnitOfWork dayBatch = populationManager.beginUnitOfWork()) {
+                    MyLogger.logInfo("Day " + day + ":");
+                    double[] probability = spreadProbabilities(ticked, infectedFraction, coupling);
+                    if (engine == null) {
+                        forEachCity(pool, ticked, i -> runCityDay(CITIES.get(i), day, probability[i]));
+                    } else {
+                        forEachCity(pool, ticked, i -> runColumnarCityDay(engine, CITIES.get(i), day, probability[i]));
+                    }
+                }
+                // Only ticked cities can have changed
+                for (int i : ticked) {
+                    infectedFraction[i] = infectedFraction(engine, CITIES.get(i));
+                    if (active != null) {
+                        active.update(i, infectedFraction[i] > 0);
+                    }
+                }
+                if (checkpointWriter != null && day % checkpointInterval == 0 && day < endDay) {
+                    checkpointWriter.write(checkpoint(engine, endDay));
+                }
+            }
+            if (engine != null) {
+                // The column engines only touch the people once, at the end of the run
+                populationManager.writeBack(engine);
+            } else {
+                populationManager.finishRecoveries();
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            if (engine != null) {
+                engine.close();
+            } else {
+                populationManager.discardRecoveries();
+            }
+            if (checkpointWriter != null) {
+                checkpointWriter.awaitWrites();
+            }
+        }
+    }
+
+    // Copies the state at the end of currentDay; the copy is written in the background while the run goes on
+    private SimulationCheckpoint checkpoint(AgentEngine engine, int endDay) {
+        List<SimulationCheckpoint.CityState> states = new ArrayList<>();
         for (String city : CITIES) {
+            var c = cityService.viewCityByName(city);
+            if (c == null || c.getResidents() == null) {
+                continue;
+            }
+            List<Person> residents = c.getResidents();
+            CityAgents agents = engine != null ? engine.getPopulation(city) : null;
+            byte[] status = new byte[residents.size()];
+            int[] duration = new int[residents.size()];
+            short[] recovery = new short[residents.size()];
+            for (int i = 0; i < residents.size(); i++) {
+                Person person = residents.get(i);
+                HealthStatus healthStatus = agents != null ? agents.getHealthStatus(i) : person.getHealthStatus();
+                status[i] = (byte) healthStatus.ordinal();
+                duration[i] = agents != null ? agents.getInfectionDuration(i)
+                        : populationManager.getInfectionDuration(city, i, person);
+                recovery[i] = (short) person.getRecoveryTime();
+            }
+            int[] susceptibleOrder = agents instanceof CityPopulation population ? population.getSusceptibleOrder() : null;
+            List<Graph.Edge> edges = populationManager.getCityGraph().getEdges(city);
+            String[] targets = new String[edges.size()];
+            double[] weights = new double[edges.size()];
+            for (int i = 0; i < edges.size(); i++) {
+                targets[i] = edges.get(i).destination;
+                weights[i] = edges.get(i).weight;
+            }
+            states.add(new SimulationCheckpoint.CityState(city, c.getInfectionRate(), c.getRiskLevel().name(),
+                    c.getResidentIds(), status, duration, recovery, susceptibleOrder, targets, weights));
+        }
+        return new SimulationCheckpoint(populationManager.getRandomStreams().getSeed(), currentDay, endDay,
+                engineMode.name(), interCityTransmission, activeSetScheduling, infectionRate, recoveryTime,
+                initialInfected, states);
+    }
+
+    // Advances per-city counts only; the residents are brought in line with the counts when the run ends
+    private void runAggregate(int days, CouplingOperator coupling) {
+        AggregateEngine aggregate = populationManager.createAggregateEngine(
+                CITIES, infectionRate, recoveryTime, aggregateStep, coupling);
+        for (int elapsed = 0; elapsed < days; elapsed++) {
+            int day = ++currentDay;
+            try (UnitOfWork dayBatch = populationManager.beginUnitOfWork()) {
+                MyLogger.logInfo("Day " + day + ":");
+                aggregate.tick(day);
+                for (int i = 0; i < CITIES.size(); i++) {
+                    var c = cityService.getCityByName(CITIES.get(i));
+                    double population = aggregate.getPopulation(i);
+                    if (c != null) {
+                        updateInfectionRate(c, population > 0 ? aggregate.getInfected(i) / population : 0.0);
+                        cityService.updateCity(c);
+                    }
+                    MyLogger.logInfo("Infected " + CITIES.get(i) + ": " + Math.round(aggregate.getInfected(i)));
+                }
+            }
+        }
+        populationManager.writeBack(aggregate);
+    }
+
+    // Today's infection probability for the given cities, from infections at the start of the day: the local rate,
+    // combined with the force of infection imported from neighbouring cities
+    private double[] spreadProbabilities(int[] cities, double[] infectedFraction, CouplingOperator coupling) {
+        double[] probability = new double[CITIES.size()];
+        Arrays.fill(probability, SPREAD_PROBABILITY);
+        if (coupling == null) {
+            return probability;
+        }
+        double[] imported = new double[CITIES.size()];
+        coupling.multiplyRows(cities, infectedFraction, imported);
+        for (int i : cities) {
+            probability[i] = CouplingOperator.spreadProbability(SPREAD_PROBABILITY, imported[i]);
+        }
+        return probability;
+    }
+
+    private double infectedFraction(AgentEngine engine, String city) {
+        int infected, total;
+        if (engine != null) {
+            CityAgents population = engine.getPopulation(city);
+            infected = population != null ? population.getInfectedCount() : 0;
+            total = population != null ? population.size() : 0;
+        } else {
+            var c = cityService.viewCityByName(city);
+            infected = populationManager.countInfected(city);
+            total = c != null && c.getResidents() != null ? c.getResidents().size() : 0;
+        }
+        return total > 0 ? (double) infected / total : 0.0;
+    }
+
+    // On first run, initialize infected people and set recovery time
+    private void seedInitialInfections() {
+        for (String city : CITIES) {
+            var view = cityService.viewCityByName(city);
+            if (view == null || view.getResidents() == null || !needsSeeding(view)) {
+                continue; // Leaves the city shared with the simulation this one was forked from
+            }
             var c = cityService.getCityByName(city);
             if (c != null && c.getResidents() != null) {
                 int infectedCount = 0;
                 for (var p : c.getResidents()) {
                     p.setRecoveryTime(recoveryTime);
-                    if (infectedCount < initialInfected && p.getHealthStatus() == domain.person.HealthStatus.SUSCEPTIBLE) {
-                        p.setHealthStatus(domain.person.HealthStatus.INFECTED);
+                    if (infectedCount < initialInfected && p.getHealthStatus() == HealthStatus.SUSCEPTIBLE) {
+                        p.setHealthStatus(HealthStatus.INFECTED);
                         p.setInfectionDuration(1);
                         infectedCount++;
                     }
                 }
+                c.recordTransition(HealthStatus.SUSCEPTIBLE, HealthStatus.INFECTED, infectedCount);
             }
         }
-        for (int day = 1; day <= days; day++) {
-            MyLogger.logInfo("Day " + day + ":");
-            for(String city: CITIES){
-                populationManager.spreadInfection(city, 0.1);
-                populationManager.updatePopulationHealth(city);
-                CityService cs = getCityService();
-                var c = cs.getCityByName(city);
-                if (c != null) {
-                    int infected = populationManager.countInfected(city);
-                    int total = c.getResidents() != null ? c.getResidents().size() : 0;
-                    double infectionRate = (total > 0) ? ((double) infected / total) : 0.0;
-                    c.setInfectionRate(infectionRate);
-                    // Determine risk level
-                    if (infectionRate == 0.0) {
-                        c.setRiskLevel(RiskLevel.OUT_OF_DANGER);
-                    } else if (infectionRate <= 0.05) {
-                        c.setRiskLevel(RiskLevel.LOW);
-                    } else if (infectionRate <= 0.15) {
-                        c.setRiskLevel(RiskLevel.MEDIUM);
-                    } else {
-                        c.setRiskLevel(RiskLevel.HIGH);
-                    }
-                    cs.updateCity(c);
-                }
-                MyLogger.logInfo("Infected "+city+": " + populationManager.countInfected(city));
+    }
+
+    private boolean needsSeeding(City c) {
+        if (initialInfected > 0 && c.countOf(HealthStatus.SUSCEPTIBLE) > 0) {
+            return true;
+        }
+        for (Person p : c.getResidents()) {
+            if (p.getRecoveryTime() != recoveryTime) {
+                return true;
             }
         }
+        return false;
+    }
+
+    // Runs replicates of the scenario as it stands, each with its own random streams, and reports the spread of
+    // infected counts per day and city. The people and cities themselves are left as they are, apart from the
+    // initial infections runSimulation would also seed. Replicates always use the columnar engine.
+    public void runEnsemble(int days, int replicates, EnsembleRunner.DayListener listener) {
+        detachBranches();
+        seedInitialInfections();
+        PopulationEngine scenario = populationManager.createPopulationEngine(CITIES, currentDay + 1);
+        CouplingOperator coupling = interCityTransmission ? populationManager.createCouplingOperator(CITIES) : null;
+        new EnsembleRunner(scenario, CITIES, coupling, SPREAD_PROBABILITY, populationManager.getRandomStreams(), parallelism)
+                .run(replicates, currentDay + 1, days, listener);
+    }
+
+    // Runs every combination of the given parameters from the scenario as it stands, without changing it.
+    // Uses the columnar engine, with each infection rate as the daily chance of local infection.
+    public SweepResults runSweep(int days, double[] infectionRates, int[] recoveryTimes, int[] initialInfected) {
+        PopulationEngine scenario = populationManager.createPopulationEngine(CITIES, currentDay + 1);
+        CouplingOperator coupling = interCityTransmission ? populationManager.createCouplingOperator(CITIES) : null;
+        return new ParameterSweep(scenario, CITIES, coupling, populationManager.getRandomStreams(), parallelism)
+                .run(infectionRates, recoveryTimes, initialInfected, currentDay + 1, days);
+    }
+
+    // Runs cityDay for each of the given city indices, as one fork-join task per city when a pool is given.
+    // Returns once every city is done, so no city starts the next day early.
+    private void forEachCity(ForkJoinPool pool, int[] cities, IntConsumer cityDay) {
+        if (pool == null) {
+            for (int i : cities) {
+                cityDay.accept(i);
+            }
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int city : cities) {
+            tasks.add(ForkJoinTask.adapt(() -> cityDay.accept(city)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    private void runColumnarCityDay(AgentEngine engine, String city, int day, double spreadProbability) {
+        CityAgents population = engine.tick(city, spreadProbability, day);
+        if (population != null) {
+            updateInfectionRate(city, population.getInfectedCount(), population.size());
+        }
+        MyLogger.logInfo("Infected " + city + ": " + (population != null ? population.getInfectedCount() : 0));
+    }
+
+    private void runCityDay(String city, int day, double spreadProbability) {
+        var view = cityService.viewCityByName(city);
+        // Nobody can change status without infected or susceptible residents, so the city is only read
+        boolean idle = view != null && view.countOf(HealthStatus.INFECTED) == 0
+                && (view.countOf(HealthStatus.SUSCEPTIBLE) == 0 || spreadProbability <= 0);
+        if (!idle) {
+            populationManager.spreadInfection(city, spreadProbability, day);
+            populationManager.updatePopulationHealth(city, day);
+        }
+        if (view != null) {
+            int total = view.getResidents() != null ? view.getResidents().size() : 0;
+            updateInfectionRate(city, populationManager.countInfected(city), total);
+        }
+        MyLogger.logInfo("Infected "+city+": " + populationManager.countInfected(city));
+    }
+
+    // Looks the city up for writing only when its rate changes, so a forked simulation keeps sharing the others
+    private void updateInfectionRate(String city, int infected, int total) {
+        double rate = (total > 0) ? ((double) infected / total) : 0.0;
+        var view = cityService.viewCityByName(city);
+        if (view != null && (view.getInfectionRate() != rate || view.getRiskLevel() != RiskLevel.fromInfectionRate(rate))) {
+            var c = cityService.getCityByName(city);
+            updateInfectionRate(c, rate);
+            cityService.updateCity(c);
+        }
+    }
+
+    private static void updateInfectionRate(City c, double infectionRate) {
+        c.setInfectionRate(infectionRate);
+        c.setRiskLevel(RiskLevel.fromInfectionRate(infectionRate));
     }
 
     // NOTE: Make sure you have the required resource files (e.g., strings.properties and personNamesPath JSON) in your classpath/resources.
@@ -39,6 +39,11 @@ public class CityService {
         return cityDao.getCityByName(name);
     }
 
+    // The city for reading only, see CityDao.viewCityByName
+    public City viewCityByName(String name) {
+        return cityDao.viewCityByName(name);
+    }
+
     public void updateCity(City city) {
         if (cityDao.getCityByName(city.getName()) != null) {
             cityDao.updateCity(city);
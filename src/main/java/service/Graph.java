@@ -20,6 +20,26 @@ public class Graph {
         adjacencyList.get(source).add(new Edge(destination, weight));
     }
 
+    public void removeEdge(String source, String destination) {
+        List<Edge> edges = adjacencyList.get(source);
+        if (edges != null) {
+            edges.removeIf(edge -> edge.destination.equals(destination));
+        }
+    }
+
+    // A graph with the same vertices and edges that can be changed on its own
+    public Graph copy() {
+        Graph copy = new Graph();
+        adjacencyList.forEach((vertex, edges) -> {
+            List<Edge> copiedEdges = new ArrayList<>();
+            for (Edge edge : edges) {
+                copiedEdges.add(new Edge(edge.destination, edge.weight));
+            }
+            copy.adjacencyList.put(vertex, copiedEdges);
+        });
+        return copy;
+    }
+
     public List<Edge> getEdges(String vertex) {
         return adjacencyList.getOrDefault(vertex, new ArrayList<>());
     }
@@ -2,20 +2,35 @@ package service;
 
 import data.CityDao;
 import data.PersonDao;
+import data.SimulationCheckpoint;
+import data.UnitOfWork;
 import domain.city.City;
+import domain.city.RiskLevel;
 import domain.person.HealthStatus;
 import domain.person.Person;
 import domain.utils.MergeSort;
 import domain.utils.MyLogger;
+import domain.utils.RandomStreams;
+import service.engine.AgentEngine;
+import service.engine.AggregateEngine;
+import service.engine.Binomial;
+import service.engine.CityAgents;
+import service.engine.CouplingOperator;
+import service.engine.OffHeapPopulationEngine;
+import service.engine.PopulationEngine;
+import service.engine.RecoveryWheel;
 
 import java.util.*;
+import java.util.random.RandomGenerator;
 
 public class PopulationManager {
     private final CityDao cityDao;
     private final PersonDao personDao;
     private final CityService cityService; // Add CityService field
     private final Graph cityGraph;
-    private final Random random = new Random();
+    private RandomStreams randomStreams = RandomStreams.unseeded();
+    // Recoveries of each city while an object run schedules them, see scheduleRecoveries
+    private Map<String, RecoverySchedule> recoverySchedules;
 
     public PopulationManager(CityDao cityDao, PersonDao personDao, CityService cityService) { // Add CityService parameter
         this.cityDao = cityDao;
@@ -24,11 +39,25 @@ public class PopulationManager {
         this.cityGraph = new Graph();
     }
 
+    private PopulationManager(CityDao cityDao, PersonDao personDao, CityService cityService, Graph cityGraph,
+                              RandomStreams randomStreams) {
+        this.cityDao = cityDao;
+        this.personDao = personDao;
+        this.cityService = cityService;
+        this.cityGraph = cityGraph;
+        this.randomStreams = randomStreams;
+    }
+
+    // A manager over the given stores with its own copy of the connections and the same random streams
+    public PopulationManager fork(CityDao cityDao, PersonDao personDao, CityService cityService) {
+        return new PopulationManager(cityDao, personDao, cityService, cityGraph.copy(), randomStreams);
+    }
+
     public void initializeCities(List<String> cities, CityService cityService){
         for (String cityName : cities) {
             if (!cityGraph.hasVertex(cityName)) {
                 cityGraph.addVertex(cityName);
-                cityService.addCity(cityName, generateRandomPopulationDensity());
+                cityService.addCity(cityName, generateRandomPopulationDensity(randomStreams.forCity(cityName, RandomStreams.DENSITY)));
             }
         }
     }
@@ -36,13 +65,13 @@ public class PopulationManager {
     public void initializePopulation(String cityName, int minPopulation, int maxPopulation) {
         City city = cityDao.getCityByName(cityName);
         if (city != null) {
-            int populationSize = generateRandomPopulationSize(minPopulation, maxPopulation);
+            RandomGenerator random = randomStreams.forCity(cityName, RandomStreams.POPULATION);
+            int populationSize = generateRandomPopulationSize(minPopulation, maxPopulation, random);
             List<Person> people = new ArrayList<>();
             for (int i = 0; i < populationSize; i++) {
-                Person person = Person.createRandomPerson(80, cityName);
-                people.add(person);
-                personDao.addPerson(person);
+                people.add(Person.createRandomPerson(80, cityName, random));
             }
+            personDao.addAll(people);
             city.setResidents(people); // Always set residents
             cityDao.updateCity(city);
             MyLogger.logInfo("Finished initializing " + populationSize + " people in " + cityName + " population size: " + populationSize);
@@ -51,6 +80,33 @@ public class PopulationManager {
         }
     }
 
+    // Puts the stored cities and their connections in the graph and resolves their residents, without creating
+    // anyone; returns false when the store has no cities
+    public boolean loadSavedCities() {
+        List<City> cities = cityDao.getAllCities();
+        for (City city : cities) {
+            cityGraph.addVertex(city.getName());
+        }
+        for (City city : cities) {
+            city.getConnections().forEach((neighbour, weight) -> {
+                if (cityGraph.hasVertex(neighbour) && !cityGraph.hasEdge(city.getName(), neighbour)) {
+                    cityGraph.addEdge(city.getName(), neighbour, weight);
+                }
+            });
+        }
+        loadResidents();
+        return !cities.isEmpty();
+    }
+
+    // Cities read from disk only know their residents' ids; look the people up in the person store, one batch per city
+    public void loadResidents() {
+        for (City city : cityDao.getAllCities()) {
+            if (city.hasUnresolvedResidents()) {
+                city.setResidents(new ArrayList<>(personDao.getPersonsByIds(city.getResidentIds())));
+            }
+        }
+    }
+
     public List<Person> getSortedPopulation(String cityName) {
         City city = cityDao.getCityByName(cityName);
         if (city != null && city.getResidents() != null) {
@@ -79,34 +135,79 @@ public class PopulationManager {
         }
     }
 
+    // Removes every connection to and from the city, e.g. to model a lockdown
+    public void closeConnections(String cityName) {
+        try (UnitOfWork batch = beginUnitOfWork()) {
+            for (String vertex : cityGraph.getVertices()) {
+                if (cityGraph.hasEdge(vertex, cityName)) {
+                    cityGraph.removeEdge(vertex, cityName);
+                    City city = cityDao.getCityByName(vertex);
+                    if (city != null) {
+                        city.removeConnection(cityName);
+                        cityDao.updateCity(city);
+                    }
+                }
+            }
+            cityGraph.getEdges(cityName).clear();
+            City city = cityDao.getCityByName(cityName);
+            if (city != null) {
+                city.setConnections(new HashMap<>());
+                cityDao.updateCity(city);
+            }
+        }
+    }
+
+    public void setRandomSeed(long seed) {
+        this.randomStreams = new RandomStreams(seed);
+    }
+
+    public RandomStreams getRandomStreams() {
+        return randomStreams;
+    }
+
     public Graph getCityGraph() {
         return cityGraph;
     }
 
-    private double generateRandomPopulationDensity(){
-        return 5 + (20 - 5) * Math.random();
+    private double generateRandomPopulationDensity(RandomGenerator random){
+        return 5 + (20 - 5) * random.nextDouble();
     }
 
-    private int generateRandomPopulationSize(int minPopulation, int maxPopulation) {
+    private int generateRandomPopulationSize(int minPopulation, int maxPopulation, RandomGenerator random) {
         if (minPopulation > maxPopulation) {
             throw new IllegalArgumentException("Minimum population cannot be greater than maximum population");
         }
-        return minPopulation + (int) (Math.random() * (maxPopulation - minPopulation + 1));
+        return minPopulation + (int) (random.nextDouble() * (maxPopulation - minPopulation + 1));
     }
 
-    public void spreadInfection(String cityName, double infectionProbability) {
+    // Draws come from the city's stream for that day, so results do not depend on the order cities run in
+    public void spreadInfection(String cityName, double infectionProbability, int day) {
         City city = cityDao.getCityByName(cityName);
         if (city != null) {
+            RandomGenerator random = randomStreams.forCity(cityName, day);
             List<Person> cityPopulation = city.getResidents();
             if(cityPopulation != null){
-                for (Person person : cityPopulation) {
-                    if (person.getHealthStatus() == HealthStatus.SUSCEPTIBLE) {
-                        if (random.nextDouble() < infectionProbability) {
+                List<Person> newlyInfected = new ArrayList<>();
+                if (infectionProbability > 0) {
+                    // Jump from one infection to the next with geometric gaps instead of a draw per person
+                    double logFailure = Math.log1p(-infectionProbability);
+                    long nextInfection = Binomial.nextGap(random, logFailure);
+                    long susceptibleSeen = 0;
+                    RecoverySchedule schedule = recoverySchedules != null ? recoverySchedules.get(cityName) : null;
+                    for (int i = 0; i < cityPopulation.size(); i++) {
+                        Person person = cityPopulation.get(i);
+                        if (person.getHealthStatus() == HealthStatus.SUSCEPTIBLE && ++susceptibleSeen == nextInfection) {
                             person.infect();
-                            personDao.updatePerson(person);
+                            newlyInfected.add(person);
+                            if (schedule != null) {
+                                schedule.infect(i, person, day, day);
+                            }
+                            nextInfection += Binomial.nextGap(random, logFailure);
                         }
                     }
                 }
+                city.recordTransition(HealthStatus.SUSCEPTIBLE, HealthStatus.INFECTED, newlyInfected.size());
+                personDao.updateAll(newlyInfected);
                 cityDao.updateCity(city);
             }
         } else {
@@ -114,15 +215,55 @@ public class PopulationManager {
         }
     }
 
+    // Ends the infections due on the given day. During an object run only the people due that day are visited;
+    // otherwise every infected resident's duration is counted up by one day.
+    public void updatePopulationHealth(String cityName, int day) {
+        RecoverySchedule schedule = recoverySchedules != null ? recoverySchedules.get(cityName) : null;
+        if (schedule == null) {
+            updatePopulationHealth(cityName);
+            return;
+        }
+        City city = cityDao.getCityByName(cityName);
+        if (city != null) {
+            List<Person> residents = city.getResidents();
+            List<Person> recovered = new ArrayList<>();
+            for (int due = schedule.lastDay + 1; due <= day; due++) {
+                int[] positions = schedule.wheel.dueAgents(due);
+                for (int n = 0; n < schedule.wheel.dueCount(due); n++) {
+                    Person person = residents.get(positions[n]);
+                    person.setHealthStatus(HealthStatus.RECOVERED); // As updateHealthStatus leaves them
+                    person.setInfectionDuration(0);
+                    recovered.add(person);
+                }
+                schedule.wheel.clear(due);
+            }
+            schedule.lastDay = Math.max(schedule.lastDay, day);
+            city.recordTransition(HealthStatus.INFECTED, HealthStatus.RECOVERED, recovered.size());
+            personDao.updateAll(recovered);
+            cityDao.updateCity(city);
+        } else {
+            System.out.println("City not found");
+        }
+    }
+
     public void updatePopulationHealth(String cityName) {
         City city = cityDao.getCityByName(cityName);
         if (city != null) {
             List<Person> allPersons = city.getResidents();
             if (allPersons != null) {
+                List<Person> changed = new ArrayList<>();
+                int recovered = 0;
                 for (Person person : allPersons) {
-                    person.updateHealthStatus();
-                    personDao.updatePerson(person);
+                    if (person.getHealthStatus() == HealthStatus.INFECTED) { // Only infected people change
+                        person.updateHealthStatus();
+                        changed.add(person);
+                        if (person.getHealthStatus() == HealthStatus.RECOVERED) {
+                            recovered++;
+                        }
+                    }
                 }
+                city.recordTransition(HealthStatus.INFECTED, HealthStatus.RECOVERED, recovered);
+                personDao.updateAll(changed);
             }
             cityDao.updateCity(city);
         } else {
@@ -130,16 +271,218 @@ public class PopulationManager {
         }
     }
 
+    // Schedules the recovery of every infected resident of the given cities, to be simulated on the object path
+    // from firstDay on. Until finishRecoveries, a day visits only the people who recover that day, and the
+    // durations of the others are kept by their day of infection instead of being counted up on each person.
+    public void scheduleRecoveries(List<String> cityNames, int firstDay) {
+        Map<String, RecoverySchedule> schedules = new HashMap<>();
+        for (String cityName : cityNames) {
+            City city = cityDao.viewCityByName(cityName);
+            if (city == null || city.getResidents() == null) {
+                continue;
+            }
+            List<Person> residents = city.getResidents();
+            RecoverySchedule schedule = new RecoverySchedule(residents, firstDay);
+            for (int i = 0; i < residents.size(); i++) {
+                Person person = residents.get(i);
+                if (person.getHealthStatus() == HealthStatus.INFECTED) {
+                    // Infected for D days at the start of firstDay means infected since firstDay - D + 1
+                    schedule.infect(i, person, firstDay - Math.max(person.getInfectionDuration(), 1) + 1, firstDay);
+                }
+            }
+            schedules.put(cityName, schedule);
+        }
+        recoverySchedules = schedules; // Each city's schedule is only changed by the thread running that city's day
+    }
+
+    // The resident's infection duration as of the end of the last simulated day, also during an object run
+    public int getInfectionDuration(String cityName, int position, Person resident) {
+        RecoverySchedule schedule = recoverySchedules != null ? recoverySchedules.get(cityName) : null;
+        if (schedule == null || resident.getHealthStatus() != HealthStatus.INFECTED) {
+            return resident.getInfectionDuration();
+        }
+        return schedule.duration(position);
+    }
+
+    // Writes the durations of the people still infected back to them and ends the scheduling
+    public void finishRecoveries() {
+        if (recoverySchedules == null) {
+            return;
+        }
+        try (UnitOfWork batch = beginUnitOfWork()) {
+            for (Map.Entry<String, RecoverySchedule> entry : recoverySchedules.entrySet()) {
+                City view = cityDao.viewCityByName(entry.getKey());
+                if (view == null || view.countOf(HealthStatus.INFECTED) == 0) {
+                    continue; // Leaves a city shared with the simulation this one was forked from
+                }
+                List<Person> residents = cityDao.getCityByName(entry.getKey()).getResidents();
+                List<Person> changed = new ArrayList<>();
+                for (int i = 0; i < residents.size(); i++) {
+                    Person person = residents.get(i);
+                    if (person.getHealthStatus() == HealthStatus.INFECTED
+                            && person.getInfectionDuration() != entry.getValue().duration(i)) {
+                        person.setInfectionDuration(entry.getValue().duration(i));
+                        changed.add(person);
+                    }
+                }
+                personDao.updateAll(changed);
+            }
+        }
+        recoverySchedules = null;
+    }
+
+    // Drops the schedules without touching anyone, when a run ends early
+    public void discardRecoveries() {
+        recoverySchedules = null;
+    }
+
+    // Residents are numbered by their position, which stays the same for the whole run
+    private static final class RecoverySchedule {
+        private final RecoveryWheel wheel;
+        private final int[] infectionDay;
+        private int lastDay; // Last day whose recoveries were processed
+
+        RecoverySchedule(List<Person> residents, int firstDay) {
+            int maxRecoveryTime = residents.stream().mapToInt(Person::getRecoveryTime).max().orElse(0);
+            this.wheel = new RecoveryWheel(Math.max(maxRecoveryTime, 1));
+            this.infectionDay = new int[residents.size()];
+            this.lastDay = firstDay - 1;
+        }
+
+        // Person.updateHealthStatus recovers once the duration exceeds the recovery time,
+        // which happens recoveryTime - 1 days after the day of infection
+        void infect(int position, Person person, int sinceDay, int today) {
+            infectionDay[position] = sinceDay;
+            int recoveryDay = sinceDay + Math.max(person.getRecoveryTime() - 1, 0);
+            wheel.schedule(Math.max(recoveryDay, today), position);
+        }
+
+        // Days infected as of the start of the next day, as Person counts them
+        int duration(int position) {
+            return lastDay + 1 - infectionDay[position] + 1;
+        }
+    }
+
+    // Snapshots the residents of the given cities into primitive columns, to be simulated from firstDay on
+    public PopulationEngine createPopulationEngine(List<String> cityNames, int firstDay) {
+        List<City> cities = new ArrayList<>();
+        for (String cityName : cityNames) {
+            City city = cityDao.viewCityByName(cityName);
+            if (city != null) {
+                cities.add(city);
+            }
+        }
+        return new PopulationEngine(cities, randomStreams, firstDay);
+    }
+
+    // The caller closes the engine once it has been written back
+    public OffHeapPopulationEngine createOffHeapPopulationEngine(List<String> cityNames) {
+        List<City> cities = new ArrayList<>();
+        for (String cityName : cityNames) {
+            City city = cityDao.viewCityByName(cityName);
+            if (city != null) {
+                cities.add(city);
+            }
+        }
+        return new OffHeapPopulationEngine(cities, randomStreams);
+    }
+
+    // The current connections between the given cities as a sparse coupling matrix
+    public CouplingOperator createCouplingOperator(List<String> cityNames) {
+        return new CouplingOperator(cityGraph, cityNames);
+    }
+
+    // Counts the residents of the given cities into an aggregate SIR model
+    public AggregateEngine createAggregateEngine(List<String> cityNames, double transmissionRate, int recoveryTime,
+                                                 AggregateEngine.Step step, CouplingOperator coupling) {
+        List<City> cities = new ArrayList<>();
+        for (String cityName : cityNames) {
+            City city = cityDao.viewCityByName(cityName);
+            cities.add(city != null ? city : new City(cityName, 0)); // Keeps indexes aligned with the coupling
+        }
+        return AggregateEngine.of(cities, transmissionRate, recoveryTime, step, coupling, randomStreams);
+    }
+
+    // Moves residents between statuses to match the aggregate counts and persists whoever changed
+    public void writeBack(AggregateEngine engine) {
+        try (UnitOfWork batch = beginUnitOfWork()) {
+            for (String cityName : engine.getCityNames()) {
+                City city = cityDao.getCityByName(cityName);
+                if (city != null) {
+                    personDao.updateAll(engine.applyTo(city));
+                    city.recountResidents();
+                    cityDao.updateCity(city);
+                }
+            }
+        }
+    }
+
+    // Copies the engine's state back into the residents and persists whoever changed
+    public void writeBack(AgentEngine engine) {
+        try (UnitOfWork batch = beginUnitOfWork()) {
+            for (CityAgents population : engine.getPopulations()) {
+                if (unchanged(population)) {
+                    continue;
+                }
+                City city = cityDao.getCityByName(population.getCityName());
+                if (city != null) {
+                    personDao.updateAll(population.writeBack(city));
+                    city.recountResidents();
+                    cityDao.updateCity(city);
+                }
+            }
+        }
+    }
+
+    // Without infections before or after the run and with the same number susceptible, no resident has changed
+    private boolean unchanged(CityAgents population) {
+        City city = cityDao.viewCityByName(population.getCityName());
+        return city != null && population.getInfectedCount() == 0 && city.countOf(HealthStatus.INFECTED) == 0
+                && population.getSusceptibleCount() == city.countOf(HealthStatus.SUSCEPTIBLE);
+    }
+
+    // Puts a checkpointed city's residents back in their saved states; false when the city or its residents differ
+    public boolean restore(SimulationCheckpoint.CityState state) {
+        City city = cityDao.getCityByName(state.name);
+        if (city == null || !Arrays.equals(city.getResidentIds(), state.residentIds)) {
+            return false;
+        }
+        HealthStatus[] statuses = HealthStatus.values();
+        List<Person> residents = city.getResidents();
+        for (int i = 0; i < residents.size(); i++) {
+            Person person = residents.get(i);
+            person.setHealthStatus(statuses[state.status[i]]);
+            person.setInfectionDuration(state.infectionDuration[i]);
+            person.setRecoveryTime(state.recoveryTime[i]);
+        }
+        city.setInfectionRate(state.infectionRate);
+        city.setRiskLevel(RiskLevel.valueOf(state.riskLevel));
+        city.recountResidents();
+        if (state.connectionTargets != null) {
+            restoreConnections(city, state.connectionTargets, state.connectionWeights);
+        }
+        personDao.updateAll(residents);
+        cityDao.updateCity(city);
+        return true;
+    }
+
+    // Replaces the city's outgoing connections with the given ones, in the given order
+    private void restoreConnections(City city, String[] targets, double[] weights) {
+        cityGraph.addVertex(city.getName());
+        cityGraph.getEdges(city.getName()).clear();
+        Map<String, Double> connections = new HashMap<>();
+        for (int i = 0; i < targets.length; i++) {
+            cityGraph.addVertex(targets[i]);
+            cityGraph.addEdge(city.getName(), targets[i], weights[i]);
+            connections.put(targets[i], weights[i]);
+        }
+        city.setConnections(connections);
+    }
+
     public int countInfected(String cityName) {
-        City city = cityDao.getCityByName(cityName);
+        City city = cityDao.viewCityByName(cityName);
         if (city != null) {
-            List<Person> allPersons = city.getResidents();
-            if (allPersons != null) {
-                return (int) allPersons.stream()
-                        .filter(person -> person.getHealthStatus() == HealthStatus.INFECTED)
-                        .count();
-            }
-            return 0;
+            return city.countOf(HealthStatus.INFECTED);
         } else {
             MyLogger.logSevere("City not found: " + cityName);
             return 0;
@@ -181,6 +524,10 @@ public class PopulationManager {
         return personDao.getPersonByName(name);
     }
 
+    public Person getPersonById(long id) {
+        return personDao.getPersonById(id);
+    }
+
     public void addPerson(Person person) {
         personDao.addPerson(person);
     }
@@ -192,4 +539,20 @@ public class PopulationManager {
     public void deletePerson(String name) {
         personDao.deletePerson(name);
     }
+
+    // Groups person and city changes, e.g. one simulated day, into a single commit per store
+    public UnitOfWork beginUnitOfWork() {
+        UnitOfWork personBatch = personDao.beginUnitOfWork();
+        UnitOfWork cityBatch = cityDao.beginUnitOfWork();
+        return () -> {
+            cityBatch.close();
+            personBatch.close();
+        };
+    }
+
+    // Persists buffered person and city changes, e.g. at the end of a simulated day
+    public void flush() {
+        personDao.flush();
+        cityDao.flush();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package service.engine;
+
+import java.util.Arrays;
+
+/**
+ * The cities worth ticking: those with infected residents, and those connected to a city with infected
+ * residents. It is kept up to date as cities gain or lose their last infection. Each change only touches the
+ * affected city's neighbours, so a day with few infected cities costs almost nothing to schedule.
+ */
+public final class ActiveCities {
+    private final CouplingOperator coupling; // Null when cities do not infect each other
+    private final boolean[] infected;
+    private final int[] infectedNeighbours; // Connected cities that currently have infections
+    private final int[] members; // Active cities, unordered
+    private final int[] position; // Index in members, or -1 when inactive
+    private int size;
+
+    public ActiveCities(int cityCount, CouplingOperator coupling) {
+        this.coupling = coupling;
+        this.infected = new boolean[cityCount];
+        this.infectedNeighbours = new int[cityCount];
+        this.members = new int[cityCount];
+        this.position = new int[cityCount];
+        Arrays.fill(position, -1);
+    }
+
+    // Call after a city's infected count may have changed
+    public void update(int city, boolean hasInfected) {
+        if (infected[city] == hasInfected) {
+            return;
+        }
+        infected[city] = hasInfected;
+        refresh(city);
+        if (coupling != null) {
+            for (int k = coupling.firstImporter(city); k < coupling.firstImporter(city + 1); k++) {
+                int importer = coupling.importer(k);
+                infectedNeighbours[importer] += hasInfected ? 1 : -1;
+                refresh(importer);
+            }
+        }
+    }
+
+    private void refresh(int city) {
+        boolean active = infected[city] || infectedNeighbours[city] > 0;
+        if (active && position[city] < 0) {
+            position[city] = size;
+            members[size++] = city;
+        } else if (!active && position[city] >= 0) {
+            int last = members[--size];
+            members[position[city]] = last;
+            position[last] = position[city];
+            position[city] = -1;
+        }
+    }
+
+    public boolean isActive(int city) {
+        return position[city] >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // The active cities in ascending order
+    public int[] toArray() {
+        int[] active = Arrays.copyOf(members, size);
+        Arrays.sort(active);
+        return active;
+    }
+}
@@ -0,0 +1,18 @@
+package service.engine;
+
+import java.util.Collection;
+
+// Advances agents held outside the Person objects; the caller writes them back when the run ends
+public interface AgentEngine extends AutoCloseable {
+    // One day in one city: spread with the given probability, then advance the infected
+    CityAgents tick(String cityName, double infectionProbability, int day);
+
+    CityAgents getPopulation(String cityName);
+
+    Collection<? extends CityAgents> getPopulations();
+
+    // Releases any memory held outside the heap
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,226 @@
+package service.engine;
+
+import domain.city.City;
+import domain.person.HealthStatus;
+import domain.person.Person;
+import domain.utils.RandomStreams;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Compartmental SIR model that keeps only susceptible, infected and recovered counts per city. A day costs
+ * O(cities + edges) however many people live in them.
+ * <p>
+ * The force of infection on city i is {@code β · (I_i/N_i + Σ w_ij · I_j/N_j)}, summed over the connections
+ * of city i, and people recover at rate {@code γ = 1 / recoveryTime}. {@link Step#ODE} integrates the rates
+ * deterministically with one fourth-order Runge-Kutta step per day. {@link Step#CHAIN_BINOMIAL} draws each
+ * day's infections and recoveries from binomial distributions with the day's probabilities.
+ */
+public class AggregateEngine {
+    public enum Step {
+        ODE,
+        CHAIN_BINOMIAL
+    }
+
+    private final List<String> cityNames;
+    private final Map<String, Integer> cityIndex = new HashMap<>();
+    private final double[] population;
+    private final double[] susceptible;
+    private final double[] infected;
+    private final double[] recovered;
+    private final double transmissionRate;
+    private final double recoveryRate;
+    private final Step step;
+    private final CouplingOperator coupling; // Null when cities do not infect each other
+    private final RandomStreams randomStreams;
+    private final double[] imported;
+
+    public AggregateEngine(List<String> cityNames, double[] susceptible, double[] infected, double[] recovered,
+                           double transmissionRate, int recoveryTime, Step step,
+                           CouplingOperator coupling, RandomStreams randomStreams) {
+        int cities = cityNames.size();
+        if (susceptible.length != cities || infected.length != cities || recovered.length != cities) {
+            throw new IllegalArgumentException("One count per city is required.");
+        }
+        this.cityNames = List.copyOf(cityNames);
+        for (int i = 0; i < cities; i++) {
+            cityIndex.put(cityNames.get(i), i);
+        }
+        this.susceptible = susceptible.clone();
+        this.infected = infected.clone();
+        this.recovered = recovered.clone();
+        this.population = new double[cities];
+        for (int i = 0; i < cities; i++) {
+            population[i] = susceptible[i] + infected[i] + recovered[i];
+        }
+        this.transmissionRate = transmissionRate;
+        this.recoveryRate = 1.0 / recoveryTime;
+        this.step = step;
+        this.coupling = coupling;
+        this.randomStreams = randomStreams;
+        this.imported = new double[cities];
+    }
+
+    // Starts from the cities' current resident counts
+    public static AggregateEngine of(List<City> cities, double transmissionRate, int recoveryTime, Step step,
+                                     CouplingOperator coupling, RandomStreams randomStreams) {
+        List<String> names = new ArrayList<>();
+        double[] s = new double[cities.size()];
+        double[] i = new double[cities.size()];
+        double[] r = new double[cities.size()];
+        for (int c = 0; c < cities.size(); c++) {
+            City city = cities.get(c);
+            names.add(city.getName());
+            s[c] = city.countOf(HealthStatus.SUSCEPTIBLE);
+            i[c] = city.countOf(HealthStatus.INFECTED);
+            r[c] = city.countOf(HealthStatus.RECOVERED);
+        }
+        return new AggregateEngine(names, s, i, r, transmissionRate, recoveryTime, step, coupling, randomStreams);
+    }
+
+    public void tick(int day) {
+        if (step == Step.ODE) {
+            rungeKuttaStep();
+        } else {
+            chainBinomialStep(day);
+        }
+    }
+
+    // Force of infection per city for the given infected counts
+    private double[] forceOfInfection(double[] infectedCounts) {
+        double[] fraction = new double[population.length];
+        for (int c = 0; c < population.length; c++) {
+            fraction[c] = population[c] > 0 ? infectedCounts[c] / population[c] : 0.0;
+        }
+        if (coupling != null) {
+            coupling.multiply(fraction, imported); // Stays all zero otherwise
+        }
+        double[] force = new double[population.length];
+        for (int c = 0; c < population.length; c++) {
+            force[c] = transmissionRate * (fraction[c] + imported[c]);
+        }
+        return force;
+    }
+
+    private void chainBinomialStep(int day) {
+        double[] force = forceOfInfection(infected);
+        double recoveryProbability = -Math.expm1(-recoveryRate);
+        for (int c = 0; c < population.length; c++) {
+            SplittableRandom random = randomStreams.forCity(cityNames.get(c), day);
+            long newInfections = Binomial.sample(random, (long) susceptible[c], -Math.expm1(-force[c]));
+            long recoveries = Binomial.sample(random, (long) infected[c], recoveryProbability);
+            susceptible[c] -= newInfections;
+            infected[c] += newInfections - recoveries;
+            recovered[c] += recoveries;
+        }
+    }
+
+    private void rungeKuttaStep() {
+        int n = population.length;
+        double[][] k1 = derivative(susceptible, infected);
+        double[][] k2 = derivative(offset(susceptible, k1[0], 0.5), offset(infected, k1[1], 0.5));
+        double[][] k3 = derivative(offset(susceptible, k2[0], 0.5), offset(infected, k2[1], 0.5));
+        double[][] k4 = derivative(offset(susceptible, k3[0], 1), offset(infected, k3[1], 1));
+        for (int c = 0; c < n; c++) {
+            double ds = (k1[0][c] + 2 * k2[0][c] + 2 * k3[0][c] + k4[0][c]) / 6;
+            double di = (k1[1][c] + 2 * k2[1][c] + 2 * k3[1][c] + k4[1][c]) / 6;
+            susceptible[c] = Math.max(0, susceptible[c] + ds);
+            infected[c] = Math.max(0, infected[c] + di);
+            recovered[c] = population[c] - susceptible[c] - infected[c];
+        }
+    }
+
+    // dS/dt and dI/dt; dR/dt follows because N is constant
+    private double[][] derivative(double[] s, double[] i) {
+        double[] force = forceOfInfection(i);
+        double[] ds = new double[s.length];
+        double[] di = new double[s.length];
+        for (int c = 0; c < s.length; c++) {
+            double infections = force[c] * s[c];
+            ds[c] = -infections;
+            di[c] = infections - recoveryRate * i[c];
+        }
+        return new double[][]{ds, di};
+    }
+
+    private static double[] offset(double[] values, double[] slope, double scale) {
+        double[] result = new double[values.length];
+        for (int c = 0; c < values.length; c++) {
+            result[c] = values[c] + scale * slope[c];
+        }
+        return result;
+    }
+
+    // Moves the city's residents between statuses until they match the counts, rounded to whole people.
+    // Longest infections recover first; returns the people whose status changed.
+    public List<Person> applyTo(City city) {
+        Integer c = cityIndex.get(city.getName());
+        List<Person> changed = new ArrayList<>();
+        if (c == null) {
+            return changed;
+        }
+        List<Person> residents = city.getResidents();
+        long targetRecovered = Math.round(recovered[c]);
+        long targetInfected = Math.min(Math.round(infected[c]), residents.size() - targetRecovered);
+        List<Person> susceptibleResidents = new ArrayList<>();
+        List<Person> infectedResidents = new ArrayList<>();
+        long currentRecovered = 0;
+        for (Person person : residents) {
+            switch (person.getHealthStatus()) {
+                case SUSCEPTIBLE: susceptibleResidents.add(person); break;
+                case INFECTED: infectedResidents.add(person); break;
+                case RECOVERED: currentRecovered++; break;
+            }
+        }
+        infectedResidents.sort(Comparator.comparingInt(Person::getInfectionDuration).reversed());
+        for (Person person : infectedResidents) {
+            if (currentRecovered >= targetRecovered) {
+                break;
+            }
+            person.setHealthStatus(HealthStatus.RECOVERED);
+            person.setInfectionDuration(0);
+            changed.add(person);
+            currentRecovered++;
+        }
+        long currentInfected = infectedResidents.size() - changed.size();
+        for (Person person : susceptibleResidents) {
+            if (currentRecovered < targetRecovered) {
+                person.setHealthStatus(HealthStatus.RECOVERED); // Infected and recovered within the run
+                currentRecovered++;
+            } else if (currentInfected < targetInfected) {
+                person.setHealthStatus(HealthStatus.INFECTED);
+                person.setInfectionDuration(1);
+                currentInfected++;
+            } else {
+                break;
+            }
+            changed.add(person);
+        }
+        return changed;
+    }
+
+    public List<String> getCityNames() {
+        return cityNames;
+    }
+
+    public double getSusceptible(int city) {
+        return susceptible[city];
+    }
+
+    public double getInfected(int city) {
+        return infected[city];
+    }
+
+    public double getRecovered(int city) {
+        return recovered[city];
+    }
+
+    public double getPopulation(int city) {
+        return population[city];
+    }
+}
@@ -0,0 +1,94 @@
+package service.engine;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Draws from the binomial distribution in expected time independent of n. Small means count successes by
+ * jumping between them with geometric waiting times; large means use Hörmann's BTRS transformed rejection
+ * ("The generation of binomial random variates", 1993).
+ */
+public final class Binomial {
+    private static final int LOG_FACTORIAL_TABLE_SIZE = 256;
+    private static final double[] LOG_FACTORIAL = new double[LOG_FACTORIAL_TABLE_SIZE];
+
+    static {
+        for (int k = 1; k < LOG_FACTORIAL_TABLE_SIZE; k++) {
+            LOG_FACTORIAL[k] = LOG_FACTORIAL[k - 1] + Math.log(k);
+        }
+    }
+
+    private Binomial() {
+    }
+
+    // Number of successes in n independent trials with success probability p
+    public static long sample(RandomGenerator random, long n, double p) {
+        if (n <= 0 || p <= 0) {
+            return 0;
+        }
+        if (p >= 1) {
+            return n;
+        }
+        if (p > 0.5) {
+            return n - sample(random, n, 1 - p); // Both methods are fastest for small p
+        }
+        if (n * p < 10) {
+            return byWaitingTimes(random, n, p);
+        }
+        return btrs(random, n, p);
+    }
+
+    // Gap to the next success, counting the success itself: 1 with probability p, 2 with p(1-p), ...
+    public static long nextGap(RandomGenerator random, double logFailure) {
+        return (long) Math.floor(Math.log(1 - random.nextDouble()) / logFailure) + 1;
+    }
+
+    private static long byWaitingTimes(RandomGenerator random, long n, double p) {
+        double logFailure = Math.log1p(-p);
+        long successes = 0;
+        for (long trial = nextGap(random, logFailure); trial <= n; trial += nextGap(random, logFailure)) {
+            successes++;
+        }
+        return successes;
+    }
+
+    private static long btrs(RandomGenerator random, long n, double p) {
+        double q = 1 - p;
+        double spq = Math.sqrt(n * p * q);
+        double b = 1.15 + 2.53 * spq;
+        double a = -0.0873 + 0.0248 * b + 0.01 * p;
+        double c = n * p + 0.5;
+        double alpha = (2.83 + 5.1 / b) * spq;
+        double vr = 0.92 - 4.2 / b;
+        long m = (long) Math.floor((n + 1) * p);
+        double lpq = Math.log(p / q);
+        double h = logFactorial(m) + logFactorial(n - m);
+        while (true) {
+            double u = random.nextDouble() - 0.5;
+            double v = random.nextDouble();
+            double us = 0.5 - Math.abs(u);
+            long k = (long) Math.floor((2 * a / us + b) * u + c);
+            if (k < 0 || k > n) {
+                continue;
+            }
+            if (us >= 0.07 && v <= vr) {
+                return k;
+            }
+            v = Math.log(v * alpha / (a / (us * us) + b));
+            if (v <= h - logFactorial(k) - logFactorial(n - k) + (k - m) * lpq) {
+                return k;
+            }
+        }
+    }
+
+    // ln(k!), from a table for small k and Stirling's series otherwise
+    static double logFactorial(long k) {
+        if (k < LOG_FACTORIAL_TABLE_SIZE) {
+            return LOG_FACTORIAL[(int) k];
+        }
+        double x = k;
+        double inverse = 1 / x;
+        double inverseSquared = inverse * inverse;
+        return x * Math.log(x) - x + 0.5 * Math.log(2 * Math.PI * x)
+                + inverse * (1.0 / 12 - inverseSquared * (1.0 / 360 - inverseSquared / 1260));
+    }
+}
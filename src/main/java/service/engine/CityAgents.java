@@ -0,0 +1,26 @@
+package service.engine;
+
+import domain.city.City;
+import domain.person.HealthStatus;
+import domain.person.Person;
+
+import java.util.List;
+
+// The state of one city's residents in an AgentEngine, indexed in resident order
+public interface CityAgents {
+    String getCityName();
+
+    int size();
+
+    int getInfectedCount();
+
+    int getSusceptibleCount();
+
+    HealthStatus getHealthStatus(int agent);
+
+    // Days infected as Person counts them; 0 when not infected
+    int getInfectionDuration(int agent);
+
+    // Copies the state back into the city's residents; returns the people whose state changed
+    List<Person> writeBack(City city);
+}
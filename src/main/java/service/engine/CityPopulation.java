@@ -0,0 +1,227 @@
+package service.engine;
+
+import domain.city.City;
+import domain.person.HealthStatus;
+import domain.person.Person;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * The residents of one city stored as primitive columns, one array slot per agent, in the city's resident order.
+ * The daily spread and recovery loops only touch these arrays, so they allocate nothing and read memory
+ * sequentially.
+ * <p>
+ * Recoveries are scheduled on a {@link RecoveryWheel} when an agent is infected, so a day only visits the agents
+ * who recover that day. Infection durations are not counted up daily. They are derived from the day of infection:
+ * at the start of day t an agent infected on day d has been infected for t - d + 1 days. That is the same
+ * duration Person.updateHealthStatus would have counted.
+ */
+public final class CityPopulation implements CityAgents {
+    public static final byte SUSCEPTIBLE = (byte) HealthStatus.SUSCEPTIBLE.ordinal();
+    public static final byte INFECTED = (byte) HealthStatus.INFECTED.ordinal();
+    public static final byte RECOVERED = (byte) HealthStatus.RECOVERED.ordinal();
+    private static final HealthStatus[] STATUSES = HealthStatus.values();
+
+    private final String cityName;
+    private final int size;
+    final byte[] status;
+    final int[] infectionDay;
+    final byte[] age;
+    final short[] recoveryTime;
+    private final int[] susceptibleAgents; // The first susceptibleCount entries are the susceptible agents, in any order
+    private int susceptibleCount;
+    private int infected;
+    private final RecoveryWheel recoveries;
+    private int lastDay; // Last day whose recoveries were processed
+
+    // firstDay is the first day the population will be simulated
+    public CityPopulation(String cityName, int size, int maxRecoveryTime, int firstDay) {
+        this(cityName, new byte[size], new short[size], maxRecoveryTime, firstDay);
+    }
+
+    private CityPopulation(String cityName, byte[] age, short[] recoveryTime, int maxRecoveryTime, int firstDay) {
+        this.cityName = cityName;
+        this.size = age.length;
+        this.status = new byte[size];
+        this.infectionDay = new int[size];
+        this.age = age;
+        this.recoveryTime = recoveryTime;
+        this.susceptibleAgents = new int[size];
+        this.recoveries = new RecoveryWheel(Math.max(maxRecoveryTime, 1));
+        this.lastDay = firstDay - 1;
+    }
+
+    // Copies the changing columns; age and recovery time never change, so the copy shares them
+    private CityPopulation(CityPopulation other) {
+        this.cityName = other.cityName;
+        this.size = other.size;
+        this.status = other.status.clone();
+        this.infectionDay = other.infectionDay.clone();
+        this.age = other.age;
+        this.recoveryTime = other.recoveryTime;
+        this.susceptibleAgents = other.susceptibleAgents.clone();
+        this.susceptibleCount = other.susceptibleCount;
+        this.infected = other.infected;
+        this.recoveries = other.recoveries.copy();
+        this.lastDay = other.lastDay;
+    }
+
+    public CityPopulation copy() {
+        return new CityPopulation(this);
+    }
+
+    // A copy started the way Simulation.runSimulation starts a run with these parameters: every agent gets the
+    // recovery time, infections in progress are rescheduled for it, and the first initialInfected susceptible
+    // agents in resident order are infected on the first day. This population is only read.
+    public CityPopulation withParameters(int recoveryTime, int initialInfected) {
+        short[] recoveryTimes = new short[size];
+        Arrays.fill(recoveryTimes, (short) recoveryTime);
+        int firstDay = lastDay + 1;
+        CityPopulation variant = new CityPopulation(cityName, age, recoveryTimes, recoveryTime, firstDay);
+        int seeded = 0;
+        for (int i = 0; i < size; i++) {
+            if (status[i] == INFECTED) {
+                variant.infect(i, infectionDay[i], firstDay);
+            } else if (status[i] == SUSCEPTIBLE && seeded < initialInfected) {
+                variant.infect(i, firstDay, firstDay);
+                seeded++;
+            } else if (status[i] == SUSCEPTIBLE) {
+                variant.susceptibleAgents[variant.susceptibleCount++] = i;
+            } else {
+                variant.status[i] = status[i];
+            }
+        }
+        return variant;
+    }
+
+    public static CityPopulation of(City city, int firstDay) {
+        List<Person> residents = city.getResidents();
+        int maxRecoveryTime = residents.stream().mapToInt(Person::getRecoveryTime).max().orElse(0);
+        CityPopulation population = new CityPopulation(city.getName(), residents.size(), maxRecoveryTime, firstDay);
+        for (int i = 0; i < population.size; i++) {
+            Person person = residents.get(i);
+            population.status[i] = (byte) person.getHealthStatus().ordinal();
+            population.age[i] = (byte) person.getAge();
+            population.recoveryTime[i] = (short) person.getRecoveryTime();
+            if (population.status[i] == INFECTED) {
+                // Infected for D days at the start of firstDay means infected since firstDay - D + 1
+                population.infect(i, firstDay - Math.max(person.getInfectionDuration(), 1) + 1, firstDay);
+            } else if (population.status[i] == SUSCEPTIBLE) {
+                population.susceptibleAgents[population.susceptibleCount++] = i;
+            }
+        }
+        return population;
+    }
+
+    // The susceptible agents in the order spread picks from, for checkpoints
+    public int[] getSusceptibleOrder() {
+        return Arrays.copyOf(susceptibleAgents, susceptibleCount);
+    }
+
+    // Restores an order saved by getSusceptibleOrder, so a resumed run draws exactly as the original did
+    public void setSusceptibleOrder(int[] agents) {
+        if (agents.length != susceptibleCount) {
+            throw new IllegalArgumentException("Expected " + susceptibleCount + " susceptible agents, got " + agents.length);
+        }
+        for (int agent : agents) {
+            if (status[agent] != SUSCEPTIBLE) {
+                throw new IllegalArgumentException("Agent " + agent + " is not susceptible.");
+            }
+        }
+        System.arraycopy(agents, 0, susceptibleAgents, 0, susceptibleCount);
+    }
+
+    // Marks the agent infected since the given day and schedules the recovery, never earlier than today
+    private void infect(int agent, int sinceDay, int today) {
+        status[agent] = INFECTED;
+        infectionDay[agent] = sinceDay;
+        infected++;
+        // Person.updateHealthStatus recovers once the duration exceeds the recovery time,
+        // which happens recoveryTime - 1 days after the day of infection
+        int recoveryDay = sinceDay + Math.max(recoveryTime[agent] - 1, 0);
+        recoveries.schedule(Math.max(recoveryDay, today), agent);
+    }
+
+    // Infects each susceptible agent with the given probability; returns the number of new infections.
+    // Draws how many are infected, then picks them without replacement, so the cost follows the infections.
+    public int spread(double infectionProbability, RandomGenerator random, int day) {
+        recover(day - 1); // Catch up on days this city was not ticked, so the wheel never holds more than its horizon
+        int newlyInfected = (int) Binomial.sample(random, susceptibleCount, infectionProbability);
+        for (int n = 0; n < newlyInfected; n++) {
+            int pick = random.nextInt(susceptibleCount);
+            int agent = susceptibleAgents[pick];
+            susceptibleAgents[pick] = susceptibleAgents[--susceptibleCount];
+            infect(agent, day, day);
+        }
+        return newlyInfected;
+    }
+
+    // Ends the infections due on every day up to and including the given one; returns the number of recoveries
+    public int recover(int day) {
+        int recovered = 0;
+        for (int due = lastDay + 1; due <= day; due++) {
+            int[] agents = recoveries.dueAgents(due);
+            int count = recoveries.dueCount(due);
+            for (int n = 0; n < count; n++) {
+                status[agents[n]] = RECOVERED;
+            }
+            recoveries.clear(due);
+            recovered += count;
+        }
+        lastDay = Math.max(lastDay, day);
+        infected -= recovered;
+        return recovered;
+    }
+
+    // Copies the columns back into the city's residents; returns the people whose state changed
+    @Override
+    public List<Person> writeBack(City city) {
+        List<Person> residents = city.getResidents();
+        List<Person> changed = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Person person = residents.get(i);
+            HealthStatus healthStatus = STATUSES[status[i]];
+            int duration = getInfectionDuration(i);
+            if (person.getHealthStatus() != healthStatus || person.getInfectionDuration() != duration) {
+                person.setHealthStatus(healthStatus);
+                person.setInfectionDuration(duration);
+                changed.add(person);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public String getCityName() {
+        return cityName;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getInfectedCount() {
+        return infected;
+    }
+
+    @Override
+    public int getSusceptibleCount() {
+        return susceptibleCount;
+    }
+
+    @Override
+    public HealthStatus getHealthStatus(int agent) {
+        return STATUSES[status[agent]];
+    }
+
+    // Days infected as of the start of the next day to simulate, as Person counts them; 0 when not infected
+    @Override
+    public int getInfectionDuration(int agent) {
+        return status[agent] == INFECTED ? lastDay + 1 - infectionDay[agent] + 1 : 0;
+    }
+}
@@ -0,0 +1,118 @@
+package service.engine;
+
+import service.Graph;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The city graph as a sparse matrix in compressed sparse row (CSR) form, used to carry infection between
+ * connected cities. Row i holds the edges leaving city i. Multiplying by the vector of infected fractions gives
+ * each city's imported force of infection, the sum of weight × infected fraction over its neighbours. That costs
+ * O(cities + edges) per day.
+ */
+public final class CouplingOperator {
+    private final int[] rowStart;
+    private final int[] neighbour;
+    private final double[] weight;
+    // Transpose without weights: the cities with an edge into each city, which import from it
+    private final int[] importerStart;
+    private final int[] importer;
+
+    // Cities are numbered by their position in the list; edges to cities outside it are ignored
+    public CouplingOperator(Graph graph, List<String> cities) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < cities.size(); i++) {
+            index.put(cities.get(i), i);
+        }
+        rowStart = new int[cities.size() + 1];
+        int edges = 0;
+        for (int i = 0; i < cities.size(); i++) {
+            for (Graph.Edge edge : graph.getEdges(cities.get(i))) {
+                if (index.containsKey(edge.destination)) {
+                    edges++;
+                }
+            }
+            rowStart[i + 1] = edges;
+        }
+        neighbour = new int[edges];
+        weight = new double[edges];
+        int next = 0;
+        for (String city : cities) {
+            for (Graph.Edge edge : graph.getEdges(city)) {
+                Integer j = index.get(edge.destination);
+                if (j != null) {
+                    neighbour[next] = j;
+                    weight[next] = edge.weight;
+                    next++;
+                }
+            }
+        }
+        importerStart = new int[cities.size() + 1];
+        for (int e = 0; e < edges; e++) {
+            importerStart[neighbour[e] + 1]++;
+        }
+        for (int j = 0; j < cities.size(); j++) {
+            importerStart[j + 1] += importerStart[j];
+        }
+        importer = new int[edges];
+        int[] filled = new int[cities.size()];
+        for (int i = 0; i < cities.size(); i++) {
+            for (int e = rowStart[i]; e < rowStart[i + 1]; e++) {
+                int j = neighbour[e];
+                importer[importerStart[j] + filled[j]++] = i;
+            }
+        }
+    }
+
+    // imported[i] = Σ weight(i, j) × infectedFraction[j] over the edges leaving city i
+    public void multiply(double[] infectedFraction, double[] imported) {
+        for (int i = 0; i < rowStart.length - 1; i++) {
+            imported[i] = row(i, infectedFraction);
+        }
+    }
+
+    // The same product for the listed rows only; other entries of imported are left as they are
+    public void multiplyRows(int[] rows, double[] infectedFraction, double[] imported) {
+        for (int i : rows) {
+            imported[i] = row(i, infectedFraction);
+        }
+    }
+
+    private double row(int i, double[] infectedFraction) {
+        double sum = 0;
+        for (int e = rowStart[i]; e < rowStart[i + 1]; e++) {
+            sum += weight[e] * infectedFraction[neighbour[e]];
+        }
+        return sum;
+    }
+
+    // Cities with an edge to the given city, i.e. the cities its infections reach, are importer(k) for
+    // firstImporter(city) <= k < firstImporter(city + 1). Read in place, so walking them allocates nothing.
+    public int firstImporter(int city) {
+        return importerStart[city];
+    }
+
+    public int importer(int k) {
+        return importer[k];
+    }
+
+    // Chance of being infected locally or by an import, treating the two as independent
+    public static double combine(double localProbability, double importedProbability) {
+        return 1 - (1 - localProbability) * (1 - importedProbability);
+    }
+
+    // Today's infection probability in a city: the local rate, and the same rate scaled by the imported pressure
+    public static double spreadProbability(double localProbability, double imported) {
+        return combine(localProbability, Math.min(1.0, localProbability * imported));
+    }
+
+    public int cityCount() {
+        return rowStart.length - 1;
+    }
+
+    public int edgeCount() {
+        return neighbour.length;
+    }
+}
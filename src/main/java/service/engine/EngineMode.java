@@ -0,0 +1,9 @@
+package service.engine;
+
+// How Simulation advances the population each day
+public enum EngineMode {
+    OBJECTS, // Person objects, persisted after every day
+    COLUMNAR, // Primitive columns per city, written back to the Person objects when the run ends
+    OFF_HEAP, // Columns in native memory with the object path's daily steps, written back when the run ends
+    AGGREGATE // Susceptible/infected/recovered counts per city, applied to the Person objects when the run ends
+}
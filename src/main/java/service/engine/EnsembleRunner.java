@@ -0,0 +1,110 @@
+package service.engine;
+
+import domain.utils.QuantileSketch;
+import domain.utils.RandomStreams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many replicates of one scenario and reports per-day, per-city quantiles of the infected counts.
+ * Replicate r is a copy-on-write {@link PopulationEngine#fork} of the scenario, drawing from
+ * {@code randomStreams.derive(r)}. Its results depend only on the seed and r, not on the parallelism.
+ * <p>
+ * Each worker takes the next replicate, runs it to the end, adds its infected counts to its own
+ * {@link QuantileSketch} per day and city, and drops it. Once every replicate is done the workers' sketches are
+ * merged and the days are reported in order.
+ * <p>
+ * At most one population per worker is alive at a time, so memory is O(parallelism × population), however many
+ * replicates are run. The sketches take O(parallelism × days × cities) more, each bounded by the range of the
+ * counts rather than the number of replicates.
+ */
+public class EnsembleRunner {
+    public static final double[] QUANTILES = {0.05, 0.5, 0.95};
+    private static final double SKETCH_ACCURACY = 0.01;
+
+    // Called once per simulated day with one sketch per city, in the order of the city names
+    public interface DayListener {
+        void onDay(int day, List<String> cityNames, QuantileSketch[] infected);
+    }
+
+    private final PopulationEngine scenario;
+    private final List<String> cityNames;
+    private final CouplingOperator coupling; // Null when cities do not infect each other
+    private final double localProbability;
+    private final RandomStreams randomStreams;
+    private final int parallelism;
+
+    public EnsembleRunner(PopulationEngine scenario, List<String> cityNames, CouplingOperator coupling,
+                          double localProbability, RandomStreams randomStreams, int parallelism) {
+        this.scenario = scenario;
+        this.cityNames = List.copyOf(cityNames);
+        this.coupling = coupling;
+        this.localProbability = localProbability;
+        this.randomStreams = randomStreams;
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    public void run(int replicates, int firstDay, int days, DayListener listener) {
+        int workers = Math.min(parallelism, Math.max(replicates, 1));
+        QuantileSketch[][][] workerSketches = new QuantileSketch[workers][days][];
+        AtomicInteger nextReplicate = new AtomicInteger();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int w = 0; w < workers; w++) {
+            QuantileSketch[][] sketches = workerSketches[w];
+            for (int d = 0; d < days; d++) {
+                sketches[d] = newSketches();
+            }
+            tasks.add(ForkJoinTask.adapt(() -> {
+                // Sketches merge exactly, so which worker runs which replicate does not change the result
+                for (int r = nextReplicate.getAndIncrement(); r < replicates; r = nextReplicate.getAndIncrement()) {
+                    runReplicate(r, firstDay, sketches);
+                }
+            }));
+        }
+        ForkJoinPool pool = workers > 1 ? new ForkJoinPool(workers) : null;
+        try {
+            if (pool == null) {
+                tasks.forEach(ForkJoinTask::invoke);
+            } else {
+                pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        for (int d = 0; d < days; d++) {
+            QuantileSketch[] merged = newSketches();
+            for (QuantileSketch[][] sketches : workerSketches) {
+                for (int i = 0; i < merged.length; i++) {
+                    merged[i].merge(sketches[d][i]);
+                }
+            }
+            listener.onDay(firstDay + d, cityNames, merged);
+        }
+    }
+
+    // Runs replicate r to the end and adds its infected counts to the day's sketches; the fork is dropped after
+    private void runReplicate(int r, int firstDay, QuantileSketch[][] sketches) {
+        PopulationEngine engine = scenario.fork(randomStreams.derive(r));
+        for (int d = 0; d < sketches.length; d++) {
+            engine.tickAll(cityNames, coupling, localProbability, firstDay + d);
+            for (int i = 0; i < cityNames.size(); i++) {
+                CityPopulation population = engine.getPopulation(cityNames.get(i));
+                sketches[d][i].add(population != null ? population.getInfectedCount() : 0);
+            }
+        }
+    }
+
+    private QuantileSketch[] newSketches() {
+        QuantileSketch[] sketches = new QuantileSketch[cityNames.size()];
+        for (int i = 0; i < sketches.length; i++) {
+            sketches[i] = new QuantileSketch(SKETCH_ACCURACY);
+        }
+        return sketches;
+    }
+}
@@ -0,0 +1,165 @@
+package service.engine;
+
+import domain.city.City;
+import domain.person.HealthStatus;
+import domain.person.Person;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * The residents of one city as columns in native memory allocated from an {@link Arena}, read and written through
+ * {@link VarHandle}s. The columns are a copy taken from the city's Person objects, which stay on the heap for the
+ * whole run because {@link #writeBack} applies the result to them. The off-heap columns are therefore a second
+ * working set on top of the heap population, not a replacement for it: -Xmx must still hold every Person.
+ * <p>
+ * A day follows the object path step by step. Susceptible agents are visited in resident order and infected at
+ * geometric gaps. Then every infected agent counts one more day and recovers past its recovery time, as in
+ * Person.updateHealthStatus. With the same random stream, a day ends in exactly the state the Person objects would.
+ */
+public final class OffHeapCityPopulation implements CityAgents {
+    static final ValueLayout.OfByte STATUS_LAYOUT = ValueLayout.JAVA_BYTE.withName("status");
+    static final ValueLayout.OfInt DURATION_LAYOUT = ValueLayout.JAVA_INT.withName("infectionDuration");
+    static final ValueLayout.OfShort RECOVERY_TIME_LAYOUT = ValueLayout.JAVA_SHORT.withName("recoveryTime");
+    // Coordinates: segment, base offset, agent index
+    private static final VarHandle STATUS = STATUS_LAYOUT.arrayElementVarHandle();
+    private static final VarHandle DURATION = DURATION_LAYOUT.arrayElementVarHandle();
+    private static final VarHandle RECOVERY_TIME = RECOVERY_TIME_LAYOUT.arrayElementVarHandle();
+    private static final HealthStatus[] STATUSES = HealthStatus.values();
+
+    private final String cityName;
+    private final long size;
+    private final MemorySegment status;
+    private final MemorySegment infectionDuration;
+    private final MemorySegment recoveryTime;
+    private int susceptible;
+    private int infected;
+
+    // The columns live until the arena is closed
+    public OffHeapCityPopulation(String cityName, int size, Arena arena) {
+        this.cityName = cityName;
+        this.size = size;
+        this.status = arena.allocate(MemoryLayout.sequenceLayout(size, STATUS_LAYOUT));
+        this.infectionDuration = arena.allocate(MemoryLayout.sequenceLayout(size, DURATION_LAYOUT));
+        this.recoveryTime = arena.allocate(MemoryLayout.sequenceLayout(size, RECOVERY_TIME_LAYOUT));
+    }
+
+    public static OffHeapCityPopulation of(City city, Arena arena) {
+        List<Person> residents = city.getResidents();
+        OffHeapCityPopulation population = new OffHeapCityPopulation(city.getName(), residents.size(), arena);
+        for (int i = 0; i < residents.size(); i++) {
+            Person person = residents.get(i);
+            byte healthStatus = (byte) person.getHealthStatus().ordinal();
+            STATUS.set(population.status, 0L, (long) i, healthStatus);
+            DURATION.set(population.infectionDuration, 0L, (long) i, person.getInfectionDuration());
+            RECOVERY_TIME.set(population.recoveryTime, 0L, (long) i, (short) person.getRecoveryTime());
+            if (healthStatus == CityPopulation.SUSCEPTIBLE) {
+                population.susceptible++;
+            } else if (healthStatus == CityPopulation.INFECTED) {
+                population.infected++;
+            }
+        }
+        return population;
+    }
+
+    // Infects each susceptible agent with the given probability; returns the number of new infections
+    public int spread(double infectionProbability, RandomGenerator random) {
+        if (infectionProbability <= 0) {
+            return 0;
+        }
+        double logFailure = Math.log1p(-infectionProbability);
+        long nextInfection = Binomial.nextGap(random, logFailure);
+        long susceptibleSeen = 0;
+        int newlyInfected = 0;
+        for (long i = 0; i < size && nextInfection <= susceptible; i++) {
+            if ((byte) STATUS.get(status, 0L, i) == CityPopulation.SUSCEPTIBLE && ++susceptibleSeen == nextInfection) {
+                STATUS.set(status, 0L, i, CityPopulation.INFECTED);
+                DURATION.set(infectionDuration, 0L, i, 1);
+                newlyInfected++;
+                nextInfection += Binomial.nextGap(random, logFailure);
+            }
+        }
+        susceptible -= newlyInfected;
+        infected += newlyInfected;
+        return newlyInfected;
+    }
+
+    // Adds a day to every infection and ends those past their recovery time; returns the number of recoveries.
+    // When vectorized, whole vectors of agents go through VectorRecovery and only the tail runs the scalar loop.
+    public int recover(boolean vectorized) {
+        long bound = vectorized ? VectorRecovery.loopBound(size) : 0;
+        int recovered = bound > 0 ? VectorRecovery.recover(status, infectionDuration, recoveryTime, bound) : 0;
+        recovered += recoverScalar(bound);
+        infected -= recovered;
+        return recovered;
+    }
+
+    private int recoverScalar(long from) {
+        int recovered = 0;
+        for (long i = from; i < size; i++) {
+            if ((byte) STATUS.get(status, 0L, i) == CityPopulation.INFECTED) {
+                int duration = (int) DURATION.get(infectionDuration, 0L, i) + 1;
+                if (duration > (short) RECOVERY_TIME.get(recoveryTime, 0L, i)) {
+                    STATUS.set(status, 0L, i, CityPopulation.RECOVERED);
+                    duration = 0;
+                    recovered++;
+                }
+                DURATION.set(infectionDuration, 0L, i, duration);
+            }
+        }
+        return recovered;
+    }
+
+    @Override
+    public List<Person> writeBack(City city) {
+        List<Person> residents = city.getResidents();
+        List<Person> changed = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Person person = residents.get(i);
+            HealthStatus healthStatus = getHealthStatus(i);
+            int duration = getInfectionDuration(i);
+            if (person.getHealthStatus() != healthStatus || person.getInfectionDuration() != duration) {
+                person.setHealthStatus(healthStatus);
+                person.setInfectionDuration(duration);
+                changed.add(person);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public String getCityName() {
+        return cityName;
+    }
+
+    @Override
+    public int size() {
+        return (int) size;
+    }
+
+    @Override
+    public int getInfectedCount() {
+        return infected;
+    }
+
+    @Override
+    public int getSusceptibleCount() {
+        return susceptible;
+    }
+
+    @Override
+    public HealthStatus getHealthStatus(int agent) {
+        return STATUSES[(byte) STATUS.get(status, 0L, (long) agent)];
+    }
+
+    @Override
+    public int getInfectionDuration(int agent) {
+        return (int) DURATION.get(infectionDuration, 0L, (long) agent);
+    }
+}
@@ -0,0 +1,61 @@
+package service.engine;
+
+import domain.city.City;
+import domain.utils.RandomStreams;
+
+import java.lang.foreign.Arena;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs the daily steps over {@link OffHeapCityPopulation} columns in one shared arena, so cities can be ticked
+ * from several threads. The residents' Person objects stay on the heap alongside the columns. Closing the engine
+ * frees the native memory of every city at once.
+ */
+public class OffHeapPopulationEngine implements AgentEngine {
+    private final Arena arena = Arena.ofShared();
+    private final Map<String, OffHeapCityPopulation> populations = new LinkedHashMap<>();
+    private final RandomStreams randomStreams;
+    private boolean vectorizedRecovery = false;
+
+    public OffHeapPopulationEngine(Collection<City> cities, RandomStreams randomStreams) {
+        this.randomStreams = randomStreams;
+        for (City city : cities) {
+            populations.put(city.getName(), OffHeapCityPopulation.of(city, arena));
+        }
+    }
+
+    // Runs the recovery step with the Vector API; needs --add-modules jdk.incubator.vector
+    public void setVectorizedRecovery(boolean vectorizedRecovery) {
+        this.vectorizedRecovery = vectorizedRecovery;
+    }
+
+    // Same draws in the same order as PopulationManager.spreadInfection and updatePopulationHealth
+    @Override
+    public OffHeapCityPopulation tick(String cityName, double infectionProbability, int day) {
+        OffHeapCityPopulation population = populations.get(cityName);
+        if (population != null) {
+            population.spread(infectionProbability, randomStreams.forCity(cityName, day));
+            population.recover(vectorizedRecovery);
+        }
+        return population;
+    }
+
+    @Override
+    public OffHeapCityPopulation getPopulation(String cityName) {
+        return populations.get(cityName);
+    }
+
+    @Override
+    public Collection<OffHeapCityPopulation> getPopulations() {
+        return Collections.unmodifiableCollection(populations.values());
+    }
+
+    // The populations cannot be used afterwards
+    @Override
+    public void close() {
+        arena.close();
+    }
+}
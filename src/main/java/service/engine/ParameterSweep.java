@@ -0,0 +1,114 @@
+package service.engine;
+
+import domain.utils.RandomStreams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs one simulation per combination of infection rate, recovery time and initial infected, all starting from
+ * the same scenario. The scenario is only read. Each combination builds its own populations from it with
+ * {@link PopulationEngine#withParameters}, runs, and keeps only its summary in {@link SweepResults}. With a pool of
+ * {@code parallelism} workers, at most that many copies of the populations exist at any time.
+ * <p>
+ * The infection rate is the daily chance of local infection per susceptible resident. Combination c draws from
+ * {@code randomStreams.derive(c)}, so results do not depend on the parallelism.
+ */
+public class ParameterSweep {
+    private final PopulationEngine scenario;
+    private final List<String> cityNames;
+    private final CouplingOperator coupling; // Null when cities do not infect each other
+    private final RandomStreams randomStreams;
+    private final int parallelism;
+
+    public ParameterSweep(PopulationEngine scenario, List<String> cityNames, CouplingOperator coupling,
+                          RandomStreams randomStreams, int parallelism) {
+        this.scenario = scenario;
+        this.cityNames = List.copyOf(cityNames);
+        this.coupling = coupling;
+        this.randomStreams = randomStreams;
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    // from, from + step, ... up to and including to
+    public static double[] range(double from, double to, double step) {
+        if (step <= 0 || to < from) {
+            throw new IllegalArgumentException("A range needs from <= to and a positive step.");
+        }
+        int count = (int) Math.floor((to - from) / step + 1e-9) + 1;
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = from + i * step;
+        }
+        return values;
+    }
+
+    public static int[] range(int from, int to, int step) {
+        if (step <= 0 || to < from) {
+            throw new IllegalArgumentException("A range needs from <= to and a positive step.");
+        }
+        int[] values = new int[(to - from) / step + 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = from + i * step;
+        }
+        return values;
+    }
+
+    public SweepResults run(double[] infectionRates, int[] recoveryTimes, int[] initialInfected, int firstDay, int days) {
+        SweepResults results = new SweepResults(infectionRates, recoveryTimes, initialInfected);
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int c = 0; c < results.size(); c++) {
+            int combination = c;
+            tasks.add(ForkJoinTask.adapt(() -> runCombination(results, combination, firstDay, days)));
+        }
+        if (parallelism == 1) {
+            tasks.forEach(ForkJoinTask::invoke);
+            return results;
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    private void runCombination(SweepResults results, int combination, int firstDay, int days) {
+        PopulationEngine engine = scenario.withParameters(results.getRecoveryTime(combination),
+                results.getInitialInfected(combination), randomStreams.derive(combination));
+        double infectionRate = results.getInfectionRate(combination);
+        long peakInfected = totalInfected(engine);
+        int peakDay = firstDay - 1;
+        for (int day = firstDay; day < firstDay + days; day++) {
+            engine.tickAll(cityNames, coupling, infectionRate, day);
+            long infected = totalInfected(engine);
+            if (infected > peakInfected) {
+                peakInfected = infected;
+                peakDay = day;
+            }
+        }
+        long finalInfected = 0, finalRecovered = 0, population = 0;
+        for (String city : cityNames) {
+            CityPopulation cityPopulation = engine.getPopulation(city);
+            if (cityPopulation != null) {
+                finalInfected += cityPopulation.getInfectedCount();
+                finalRecovered += cityPopulation.size() - cityPopulation.getInfectedCount()
+                        - cityPopulation.getSusceptibleCount();
+                population += cityPopulation.size();
+            }
+        }
+        results.record(combination, peakInfected, peakDay, finalInfected, finalRecovered, population);
+    }
+
+    private long totalInfected(PopulationEngine engine) {
+        long infected = 0;
+        for (String city : cityNames) {
+            CityPopulation population = engine.getPopulation(city);
+            infected += population != null ? population.getInfectedCount() : 0;
+        }
+        return infected;
+    }
+}
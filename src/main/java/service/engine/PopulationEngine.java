@@ -0,0 +1,100 @@
+package service.engine;
+
+import domain.city.City;
+import domain.utils.RandomStreams;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs the daily spread and recovery steps over {@link CityPopulation} columns instead of Person objects.
+ * The engine takes a snapshot of the residents when it is created. The caller copies the state back with
+ * {@link CityPopulation#writeBack} when the run ends.
+ * <p>
+ * {@link #fork} clones an engine in O(cities): the fork shares the populations and copies each one the first
+ * time it ticks that city. The engine forked from must not be ticked while its forks are in use.
+ */
+public class PopulationEngine implements AgentEngine {
+    private final Map<String, CityPopulation> populations = new LinkedHashMap<>();
+    private final RandomStreams randomStreams;
+    private final Set<String> shared = new HashSet<>(); // Populations still owned by the engine this was forked from
+
+    // firstDay is the first day the engine will simulate
+    public PopulationEngine(Collection<City> cities, RandomStreams randomStreams, int firstDay) {
+        this.randomStreams = randomStreams;
+        for (City city : cities) {
+            populations.put(city.getName(), CityPopulation.of(city, firstDay));
+        }
+    }
+
+    private PopulationEngine(PopulationEngine source, RandomStreams randomStreams) {
+        this.randomStreams = randomStreams;
+        populations.putAll(source.populations);
+        shared.addAll(populations.keySet());
+    }
+
+    // A copy-on-write clone drawing from its own random streams. Ticking a fork changes the populations map,
+    // so each fork is ticked from one thread at a time.
+    public PopulationEngine fork(RandomStreams randomStreams) {
+        return new PopulationEngine(this, randomStreams);
+    }
+
+    // Variants of every population for one parameter combination, see CityPopulation.withParameters.
+    // Only reads this engine, so many threads can derive variants from it at once.
+    public PopulationEngine withParameters(int recoveryTime, int initialInfected, RandomStreams randomStreams) {
+        PopulationEngine variant = new PopulationEngine(List.of(), randomStreams, 0);
+        for (Map.Entry<String, CityPopulation> entry : populations.entrySet()) {
+            variant.populations.put(entry.getKey(), entry.getValue().withParameters(recoveryTime, initialInfected));
+        }
+        return variant;
+    }
+
+    // One day in every listed city, with the local probability raised by the pressure imported through the coupling
+    public void tickAll(List<String> cityNames, CouplingOperator coupling, double localProbability, int day) {
+        double[] infectedFraction = new double[cityNames.size()];
+        for (int i = 0; i < cityNames.size(); i++) {
+            CityPopulation population = populations.get(cityNames.get(i));
+            infectedFraction[i] = population != null && population.size() > 0
+                    ? (double) population.getInfectedCount() / population.size() : 0.0;
+        }
+        double[] imported = new double[cityNames.size()];
+        if (coupling != null) {
+            coupling.multiply(infectedFraction, imported);
+        }
+        for (int i = 0; i < cityNames.size(); i++) {
+            double probability = coupling != null
+                    ? CouplingOperator.spreadProbability(localProbability, imported[i]) : localProbability;
+            tick(cityNames.get(i), probability, day);
+        }
+    }
+
+    // One day in one city: spread, then advance the infected, like the object path does
+    @Override
+    public CityPopulation tick(String cityName, double infectionProbability, int day) {
+        CityPopulation population = populations.get(cityName);
+        if (population != null && shared.remove(cityName)) {
+            population = population.copy();
+            populations.put(cityName, population);
+        }
+        if (population != null) {
+            population.spread(infectionProbability, randomStreams.forCity(cityName, day), day);
+            population.recover(day);
+        }
+        return population;
+    }
+
+    @Override
+    public CityPopulation getPopulation(String cityName) {
+        return populations.get(cityName);
+    }
+
+    @Override
+    public Collection<CityPopulation> getPopulations() {
+        return Collections.unmodifiableCollection(populations.values());
+    }
+}
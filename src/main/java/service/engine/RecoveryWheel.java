@@ -0,0 +1,53 @@
+package service.engine;
+
+import java.util.Arrays;
+
+/**
+ * Calendar queue of agents keyed by the day they recover. There is one bucket per day of the horizon, reused
+ * cyclically. Processing a day only touches the agents due that day.
+ */
+public final class RecoveryWheel {
+    private final int[][] buckets;
+    private final int[] counts;
+
+    // horizon is the furthest number of days ahead anything is ever scheduled
+    public RecoveryWheel(int horizon) {
+        buckets = new int[horizon + 1][];
+        counts = new int[horizon + 1];
+        Arrays.fill(buckets, new int[0]);
+    }
+
+    private RecoveryWheel(RecoveryWheel other) {
+        buckets = new int[other.buckets.length][];
+        counts = other.counts.clone();
+        for (int slot = 0; slot < buckets.length; slot++) {
+            buckets[slot] = Arrays.copyOf(other.buckets[slot], counts[slot]);
+        }
+    }
+
+    public RecoveryWheel copy() {
+        return new RecoveryWheel(this);
+    }
+
+    public void schedule(int day, int agent) {
+        int slot = Math.floorMod(day, buckets.length);
+        int[] bucket = buckets[slot];
+        if (counts[slot] == bucket.length) {
+            bucket = buckets[slot] = Arrays.copyOf(bucket, Math.max(4, bucket.length * 2));
+        }
+        bucket[counts[slot]++] = agent;
+    }
+
+    public int dueCount(int day) {
+        return counts[Math.floorMod(day, buckets.length)];
+    }
+
+    // Valid up to dueCount(day) until the bucket is cleared
+    public int[] dueAgents(int day) {
+        return buckets[Math.floorMod(day, buckets.length)];
+    }
+
+    public void clear(int day) {
+        counts[Math.floorMod(day, buckets.length)] = 0;
+    }
+}
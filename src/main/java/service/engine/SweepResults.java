@@ -0,0 +1,106 @@
+package service.engine;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The outcome of a {@link ParameterSweep}, one array per column and one index per parameter combination.
+ * Combinations are ordered by infection rate, then recovery time, then initial infected. Each combination writes
+ * only its own index, so the sweep's tasks fill the columns without locking.
+ */
+public class SweepResults {
+    private final double[] infectionRate;
+    private final int[] recoveryTime;
+    private final int[] initialInfected;
+    private final long[] peakInfected;
+    private final int[] peakDay;
+    private final long[] finalInfected;
+    private final long[] finalRecovered;
+    private final long[] population;
+
+    SweepResults(double[] infectionRates, int[] recoveryTimes, int[] initialInfectedCounts) {
+        int size = infectionRates.length * recoveryTimes.length * initialInfectedCounts.length;
+        infectionRate = new double[size];
+        recoveryTime = new int[size];
+        initialInfected = new int[size];
+        int c = 0;
+        for (double rate : infectionRates) {
+            for (int recovery : recoveryTimes) {
+                for (int seeded : initialInfectedCounts) {
+                    infectionRate[c] = rate;
+                    recoveryTime[c] = recovery;
+                    initialInfected[c] = seeded;
+                    c++;
+                }
+            }
+        }
+        peakInfected = new long[size];
+        peakDay = new int[size];
+        finalInfected = new long[size];
+        finalRecovered = new long[size];
+        population = new long[size];
+    }
+
+    void record(int combination, long peakInfected, int peakDay, long finalInfected, long finalRecovered, long population) {
+        this.peakInfected[combination] = peakInfected;
+        this.peakDay[combination] = peakDay;
+        this.finalInfected[combination] = finalInfected;
+        this.finalRecovered[combination] = finalRecovered;
+        this.population[combination] = population;
+    }
+
+    // Rates are written with fixed precision, since a range of doubles yields values like 0.15000000000000002
+    public void writeCsv(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write("infection_rate,recovery_time,initial_infected,peak_infected,peak_day,final_infected,final_recovered,population");
+            writer.newLine();
+            for (int c = 0; c < size(); c++) {
+                writer.write(String.format(Locale.ROOT, "%.6f,%d,%d,%d,%d,%d,%d,%d", infectionRate[c], recoveryTime[c],
+                        initialInfected[c], peakInfected[c], peakDay[c], finalInfected[c], finalRecovered[c], population[c]));
+                writer.newLine();
+            }
+        }
+    }
+
+    public int size() {
+        return infectionRate.length;
+    }
+
+    public double getInfectionRate(int combination) {
+        return infectionRate[combination];
+    }
+
+    public int getRecoveryTime(int combination) {
+        return recoveryTime[combination];
+    }
+
+    public int getInitialInfected(int combination) {
+        return initialInfected[combination];
+    }
+
+    public long getPeakInfected(int combination) {
+        return peakInfected[combination];
+    }
+
+    public int getPeakDay(int combination) {
+        return peakDay[combination];
+    }
+
+    public long getFinalInfected(int combination) {
+        return finalInfected[combination];
+    }
+
+    public long getFinalRecovered(int combination) {
+        return finalRecovered[combination];
+    }
+
+    public long getPopulation(int combination) {
+        return population[combination];
+    }
+}
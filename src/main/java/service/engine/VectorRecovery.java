@@ -0,0 +1,67 @@
+package service.engine;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+
+/**
+ * The daily recovery step of {@link OffHeapCityPopulation} with the Vector API. Each iteration handles one int
+ * vector of agents: infected lanes count one more day, and lanes past their recovery time become recovered with a
+ * duration of 0. Status and recovery time are loaded as byte and short vectors with the same lane count and widened
+ * to ints. Only needs jdk.incubator.vector when it is used.
+ */
+final class VectorRecovery {
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = speciesOf(byte.class, Byte.SIZE);
+    private static final VectorSpecies<Short> SHORTS = speciesOf(short.class, Short.SIZE);
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+
+    private VectorRecovery() {
+    }
+
+    // Null when the hardware has no vector shape of that size, e.g. 32-bit byte vectors with 4 int lanes
+    private static <E> VectorSpecies<E> speciesOf(Class<E> elementType, int elementBits) {
+        try {
+            return VectorSpecies.of(elementType, VectorShape.forBitSize(INTS.length() * elementBits));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Agents below this index can be processed by recover; the rest are left to the scalar loop
+    static long loopBound(long size) {
+        return BYTES == null || SHORTS == null ? 0 : INTS.loopBound(size);
+    }
+
+    // Recovery step for agents [0, bound); bound comes from loopBound. Returns the number of recoveries.
+    static int recover(MemorySegment status, MemorySegment infectionDuration, MemorySegment recoveryTime, long bound) {
+        int recovered = 0;
+        for (long i = 0; i < bound; i += INTS.length()) {
+            IntVector healthStatus = (IntVector) ByteVector.fromMemorySegment(BYTES, status, i, ORDER)
+                    .convertShape(VectorOperators.B2I, INTS, 0);
+            VectorMask<Integer> infected = healthStatus.eq(CityPopulation.INFECTED);
+            if (!infected.anyTrue()) {
+                continue;
+            }
+            IntVector duration = IntVector.fromMemorySegment(INTS, infectionDuration, i * Integer.BYTES, ORDER)
+                    .add(1, infected);
+            IntVector limit = (IntVector) ShortVector.fromMemorySegment(SHORTS, recoveryTime, i * Short.BYTES, ORDER)
+                    .convertShape(VectorOperators.S2I, INTS, 0);
+            VectorMask<Integer> recovering = duration.compare(VectorOperators.GT, limit).and(infected);
+            duration.blend(0, recovering).intoMemorySegment(infectionDuration, i * Integer.BYTES, ORDER);
+            if (recovering.anyTrue()) {
+                IntVector updated = healthStatus.blend(CityPopulation.RECOVERED, recovering);
+                ((ByteVector) updated.convertShape(VectorOperators.I2B, BYTES, 0)).intoMemorySegment(status, i, ORDER);
+                recovered += recovering.trueCount();
+            }
+        }
+        return recovered;
+    }
+}
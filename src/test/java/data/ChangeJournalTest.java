@@ -0,0 +1,188 @@
+package data;
+
+import org.junit.jupiter.api.*;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeJournalTest {
+    private static final File TEST_DIR = new File(System.getProperty("java.io.tmpdir"), "test_journal");
+    private static final String SNAPSHOT = new File(TEST_DIR, "snapshot.json").getPath();
+    private static final Path JOURNAL = Path.of(SNAPSHOT + ".journal");
+    private static final Path COMPACTING_JOURNAL = Path.of(SNAPSHOT + ".journal.compacting");
+    private static final Path COMPACTING_SNAPSHOT = Path.of(SNAPSHOT + ".compacting");
+
+    private static final ChangeJournal.RecordCodec<String> CODEC = new ChangeJournal.RecordCodec<>() {
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+            out.writeUTF(value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @BeforeEach
+    void setUp() {
+        tearDown();
+        TEST_DIR.mkdirs();
+    }
+
+    @AfterEach
+    void tearDown() {
+        File[] files = TEST_DIR.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        TEST_DIR.delete();
+    }
+
+    // Replays the journal into "KEY=value" entries, "KEY-" for a delete
+    private static List<String> replay(ChangeJournal<String> journal) throws IOException {
+        List<String> changes = new ArrayList<>();
+        journal.recover((operation, key, value) -> changes.add(
+                operation == ChangeJournal.Operation.DELETE ? key + "-" : key + "=" + value));
+        return changes;
+    }
+
+    private ChangeJournal<String> write(String snapshot, String... keys) throws IOException {
+        ChangeJournal<String> journal = new ChangeJournal<>(snapshot, CODEC, Long.MAX_VALUE);
+        journal.recover((operation, key, value) -> { });
+        for (String key : keys) {
+            journal.record(ChangeJournal.Operation.ADD, key, key.toLowerCase());
+        }
+        journal.commit(lock, () -> null); // Never called below the threshold
+        return journal;
+    }
+
+    // The bytes a journal holds after recording the given keys
+    private byte[] framesOf(String... keys) throws IOException {
+        String other = new File(TEST_DIR, "other.json").getPath();
+        write(other, keys).close();
+        byte[] frames = Files.readAllBytes(Path.of(other + ".journal"));
+        Files.delete(Path.of(other + ".journal"));
+        return frames;
+    }
+
+    @Test
+    void testRecoverReplaysCommittedRecords() throws IOException {
+        ChangeJournal<String> journal = write(SNAPSHOT, "A", "B");
+        journal.record(ChangeJournal.Operation.DELETE, "A", null);
+        journal.record(ChangeJournal.Operation.UPDATE, "B", "c");
+        journal.commit(lock, () -> null);
+        journal.close();
+
+        assertEquals(List.of("A=a", "B=b", "A-", "B=c"), replay(new ChangeJournal<>(SNAPSHOT, CODEC, Long.MAX_VALUE)));
+    }
+
+    @Test
+    void testTornTailIsDroppedAndOverwritten() throws IOException {
+        write(SNAPSHOT, "A", "B").close();
+        long validLength = Files.size(JOURNAL);
+        Files.write(JOURNAL, new byte[]{0, 0, 0, 20, 1, 2, 3}, StandardOpenOption.APPEND); // Half a frame
+
+        ChangeJournal<String> journal = new ChangeJournal<>(SNAPSHOT, CODEC, Long.MAX_VALUE);
+        assertEquals(List.of("A=a", "B=b"), replay(journal));
+        assertEquals(validLength, Files.size(JOURNAL));
+        journal.record(ChangeJournal.Operation.ADD, "C", "c");
+        journal.commit(lock, () -> null);
+        journal.close();
+
+        assertEquals(List.of("A=a", "B=b", "C=c"), replay(new ChangeJournal<>(SNAPSHOT, CODEC, Long.MAX_VALUE)));
+    }
+
+    @Test
+    void testRecordWithBadChecksumEndsReplay() throws IOException {
+        write(SNAPSHOT, "A", "B").close();
+        byte[] bytes = Files.readAllBytes(JOURNAL);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(JOURNAL, bytes);
+
+        assertEquals(List.of("A=a"), replay(new ChangeJournal<>(SNAPSHOT, CODEC, Long.MAX_VALUE)));
+    }
+
+    @Test
+    void testCompactionFoldsTheLogIntoASnapshot() throws IOException {
+        ChangeJournal<String> journal = new ChangeJournal<>(SNAPSHOT, CODEC, 1);
+        journal.recover((operation, key, value) -> { });
+        journal.record(ChangeJournal.Operation.ADD, "A", "a");
+        journal.commit(lock, () -> {
+            assertTrue(lock.isHeldByCurrentThread());
+            return file -> Files.writeString(file.toPath(), "[\"a\"]");
+        });
+        journal.close();
+
+        assertEquals("[\"a\"]", Files.readString(Path.of(SNAPSHOT)));
+        assertEquals(0, Files.size(JOURNAL));
+        assertFalse(Files.exists(COMPACTING_JOURNAL));
+        assertFalse(Files.exists(COMPACTING_SNAPSHOT));
+        assertEquals(List.of(), replay(new ChangeJournal<>(SNAPSHOT, CODEC, Long.MAX_VALUE)));
+    }
+
+    @Test
+    void testUnfinishedCompactionPutsTheRotatedRecordsBack() throws IOException {
+        Files.write(COMPACTING_JOURNAL, framesOf("A", "B"));
+        Files.write(JOURNAL, framesOf("C"));
+        Files.createFile(COMPACTING_SNAPSHOT); // Never replaced the old snapshot
+
+        assertEquals(List.of("A=a", "B=b", "C=c"), replay(new ChangeJournal<>(SNAPSHOT, CODEC, Long.MAX_VALUE)));
+        assertFalse(Files.exists(COMPACTING_JOURNAL));
+        assertFalse(Files.exists(COMPACTING_SNAPSHOT));
+    }
+
+    @Test
+    void testFinishedCompactionDropsTheRotatedLog() throws IOException {
+        Files.write(COMPACTING_JOURNAL, framesOf("A", "B")); // Already in the snapshot
+        Files.write(JOURNAL, framesOf("C"));
+
+        assertEquals(List.of("C=c"), replay(new ChangeJournal<>(SNAPSHOT, CODEC, Long.MAX_VALUE)));
+        assertFalse(Files.exists(COMPACTING_JOURNAL));
+    }
+
+    @Test
+    void testLeftoverSnapshotIsDeleted() throws IOException {
+        Files.writeString(COMPACTING_SNAPSHOT, "[");
+        Files.write(JOURNAL, framesOf("A"));
+
+        assertEquals(List.of("A=a"), replay(new ChangeJournal<>(SNAPSHOT, CODEC, Long.MAX_VALUE)));
+        assertFalse(Files.exists(COMPACTING_SNAPSHOT));
+    }
+
+    @Test
+    void testRecordsOfAnotherVersionAreRefused() throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(payload);
+        record.writeByte(ChangeJournal.Operation.UPDATE.ordinal()); // Unversioned records started here
+        record.writeUTF("Alice");
+        record.writeBoolean(false);
+        CRC32 crc = new CRC32();
+        crc.update(payload.toByteArray());
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(frame);
+        out.writeInt(payload.size());
+        out.write(payload.toByteArray());
+        out.writeInt((int) crc.getValue());
+        Files.write(JOURNAL, frame.toByteArray());
+
+        ChangeJournal<String> journal = new ChangeJournal<>(SNAPSHOT, CODEC, Long.MAX_VALUE);
+        assertThrows(IllegalStateException.class, () -> journal.recover((operation, key, value) -> fail("Replayed " + key)));
+        assertArrayEquals(frame.toByteArray(), Files.readAllBytes(JOURNAL));
+    }
+}
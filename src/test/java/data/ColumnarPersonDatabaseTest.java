@@ -0,0 +1,140 @@
+package data;
+
+import domain.person.HealthStatus;
+import domain.person.Person;
+import org.junit.jupiter.api.*;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarPersonDatabaseTest {
+    private static final String TEST_FILE = new File(System.getProperty("java.io.tmpdir"), "test_peoples.bin").getPath();
+
+    @BeforeEach
+    void setUp() {
+        new File(TEST_FILE).delete();
+    }
+
+    @AfterEach
+    void tearDown() {
+        new File(TEST_FILE).delete();
+        new File(TEST_FILE + ".tmp").delete();
+    }
+
+    private static Person person(String name, int age, String cityName, HealthStatus status, int duration) {
+        Person person = new Person(name, age, cityName);
+        person.setHealthStatus(status);
+        person.setInfectionDuration(duration);
+        return person;
+    }
+
+    @Test
+    void testWriteAndReadRoundTrip() {
+        Person alice = person("Alice", 30, "Dhaka", HealthStatus.INFECTED, 3);
+        Person bob = person("Bob", 200, null, HealthStatus.RECOVERED, 0);
+        Person carol = person("Carol", 0, "Sylhet", HealthStatus.SUSCEPTIBLE, 0);
+        bob.setRecoveryTime(21);
+        ColumnarPersonDatabase db = new ColumnarPersonDatabase(TEST_FILE);
+        db.addAll(List.of(alice, bob, carol));
+        db.deletePersonById(carol.getId());
+        db.flush();
+
+        ColumnarPersonDatabase reopened = new ColumnarPersonDatabase(TEST_FILE);
+        assertEquals(2, reopened.getAllPersons().size());
+        assertNull(reopened.getPersonById(carol.getId()));
+        for (Person expected : List.of(alice, bob)) {
+            Person read = reopened.getPersonById(expected.getId());
+            assertEquals(expected.getName(), read.getName());
+            assertEquals(expected.getAge(), read.getAge());
+            assertEquals(expected.getHealthStatus(), read.getHealthStatus());
+            assertEquals(expected.getInfectionDuration(), read.getInfectionDuration());
+            assertEquals(expected.getRecoveryTime(), read.getRecoveryTime());
+            assertEquals(expected.getCityName(), read.getCityName());
+        }
+        assertEquals(1, reopened.getPersonsByCity("Dhaka").size());
+    }
+
+    @Test
+    void testNestedUnitOfWorkWritesOnlyWhenTheOutermostCloses() {
+        ColumnarPersonDatabase db = new ColumnarPersonDatabase(TEST_FILE);
+        try (UnitOfWork day = db.beginUnitOfWork()) {
+            db.addAll(List.of(new Person("Alice", 30, "Dhaka")));
+            try (UnitOfWork batch = db.beginUnitOfWork()) {
+                db.updateAll(db.getAllPersons());
+            }
+            assertFalse(new File(TEST_FILE).exists());
+        }
+        assertTrue(new File(TEST_FILE).exists());
+    }
+
+    @Test
+    void testUnreadableFileIsNeverOverwritten() throws IOException {
+        byte[] garbage = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13};
+        Files.write(Paths.get(TEST_FILE), garbage);
+        ColumnarPersonDatabase db = new ColumnarPersonDatabase(TEST_FILE);
+        assertThrows(IllegalStateException.class, db::getAllPersons);
+        assertThrows(IllegalStateException.class, () -> db.addPerson(new Person("Alice", 30, "Dhaka")));
+        assertThrows(IllegalStateException.class, db::flush);
+        assertArrayEquals(garbage, Files.readAllBytes(Paths.get(TEST_FILE)));
+    }
+
+    @Test
+    void testValuesThatDoNotFitAreRefused() {
+        ColumnarPersonDatabase db = new ColumnarPersonDatabase(TEST_FILE);
+        assertThrows(IllegalArgumentException.class, () -> db.addPerson(new Person("Old", 40000, "Dhaka")));
+        assertEquals(0, db.getAllPersons().size());
+    }
+
+    @Test
+    void testReadsVersion1AndUpgradesIt() throws IOException {
+        // Version 1 had no id column and stored the age in one byte
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(TEST_FILE))) {
+            out.writeInt(0x44535043);
+            out.writeInt(1);
+            out.writeInt(2);
+            out.writeInt(2); // Names
+            for (String name : List.of("Alice", "Bob")) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeInt(1); // Cities
+            out.writeInt(5);
+            out.write("Dhaka".getBytes(StandardCharsets.UTF_8));
+            out.write(new byte[]{30, (byte) 200}); // Age
+            out.write(new byte[]{(byte) HealthStatus.INFECTED.ordinal(), (byte) HealthStatus.SUSCEPTIBLE.ordinal()});
+            out.writeShort(4); // Infection duration
+            out.writeShort(0);
+            out.writeShort(14); // Recovery time
+            out.writeShort(14);
+            out.writeInt(0); // City
+            out.writeInt(-1);
+            out.writeInt(0); // Name
+            out.writeInt(1);
+        }
+
+        ColumnarPersonDatabase db = new ColumnarPersonDatabase(TEST_FILE);
+        Person alice = db.getPersonByName("Alice");
+        Person bob = db.getPersonByName("Bob");
+        assertEquals(30, alice.getAge());
+        assertEquals(HealthStatus.INFECTED, alice.getHealthStatus());
+        assertEquals(4, alice.getInfectionDuration());
+        assertEquals("Dhaka", alice.getCityName());
+        assertEquals(200, bob.getAge());
+        assertNull(bob.getCityName());
+        assertNotEquals(0, alice.getId());
+        assertNotEquals(alice.getId(), bob.getId());
+        assertNotEquals(alice.getId(), new Person("Carol", 20, "Dhaka").getId());
+
+        db.flush();
+        ColumnarPersonDatabase reopened = new ColumnarPersonDatabase(TEST_FILE);
+        assertEquals("Alice", reopened.getPersonById(alice.getId()).getName());
+        assertEquals(200, reopened.getPersonById(bob.getId()).getAge());
+    }
+}
@@ -0,0 +1,104 @@
+package data;
+
+import domain.city.City;
+import domain.person.HealthStatus;
+import domain.person.Person;
+import org.junit.jupiter.api.*;
+import java.io.File;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CopyOnWriteCityDaoTest {
+    private static final String CITY_FILE = new File(System.getProperty("java.io.tmpdir"), "test_cow_cities.json").getPath();
+    private static final String PERSON_FILE = new File(System.getProperty("java.io.tmpdir"), "test_cow_peoples.json").getPath();
+
+    private CityDao cities;
+    private PersonDao persons;
+    private Person alice;
+    private Person carol;
+
+    @BeforeEach
+    void setUp() {
+        tearDown();
+        cities = new JsonCityDatabase(CITY_FILE);
+        persons = new JsonPersonDatabase(PERSON_FILE, 0);
+        alice = new Person("Alice", 30, "Dhaka");
+        Person bob = new Person("Bob", 40, "Dhaka");
+        persons.addAll(List.of(alice, bob));
+        City dhaka = new City("Dhaka", 10);
+        dhaka.setResidents(List.of(alice, bob));
+        cities.addCity(dhaka);
+        City sylhet = new City("Sylhet", 5);
+        carol = new Person("Carol", 50, "Sylhet");
+        persons.addPerson(carol);
+        sylhet.setResidents(List.of(carol));
+        cities.addCity(sylhet);
+    }
+
+    @AfterEach
+    void tearDown() {
+        new File(CITY_FILE).delete();
+        new File(PERSON_FILE).delete();
+    }
+
+    @Test
+    void testViewingSharesThePage() {
+        CopyOnWriteCityDao branch = new CopyOnWriteCityDao(cities, persons);
+        assertSame(cities.getCityByName("Dhaka"), branch.viewCityByName("Dhaka"));
+        assertEquals(0, branch.copiedPages());
+    }
+
+    @Test
+    void testChangesStayInTheBranch() {
+        CopyOnWriteCityDao branch = new CopyOnWriteCityDao(cities, persons);
+        City dhaka = branch.getCityByName("Dhaka");
+        dhaka.getResidents().get(0).infect();
+        dhaka.setInfectionRate(0.5);
+        branch.updateCity(dhaka);
+
+        assertEquals(1, branch.copiedPages());
+        assertSame(dhaka, branch.viewCityByName("Dhaka"));
+        assertEquals(HealthStatus.SUSCEPTIBLE, alice.getHealthStatus());
+        assertEquals(0.0, cities.getCityByName("Dhaka").getInfectionRate());
+        assertSame(cities.getCityByName("Sylhet"), branch.viewCityByName("Sylhet"));
+    }
+
+    @Test
+    void testPersonIsTheResidentOfTheCopiedPage() {
+        CopyOnWriteCityDao branch = new CopyOnWriteCityDao(cities, persons);
+        Person branchAlice = branch.getPersonDao().getPersonById(alice.getId());
+        assertNotSame(alice, branchAlice);
+        assertSame(branchAlice, branch.getCityByName("Dhaka").getResidents().get(0));
+        assertEquals(2, branch.getCityByName("Dhaka").countOf(HealthStatus.SUSCEPTIBLE));
+    }
+
+    @Test
+    void testDetachCopiesEveryPage() {
+        CopyOnWriteCityDao branch = new CopyOnWriteCityDao(cities, persons);
+        branch.detach();
+        cities.getCityByName("Dhaka").getResidents().get(0).infect();
+        assertEquals(2, branch.copiedPages());
+        assertEquals(HealthStatus.SUSCEPTIBLE, branch.getPersonDao().getPersonById(alice.getId()).getHealthStatus());
+    }
+
+    @Test
+    void testNameLookupCopiesOnlyThePageFound() {
+        CopyOnWriteCityDao branch = new CopyOnWriteCityDao(cities, persons);
+        Person branchCarol = branch.getPersonDao().getPersonByName("Carol");
+        assertNotSame(carol, branchCarol);
+        assertSame(branchCarol, branch.viewCityByName("Sylhet").getResidents().get(0));
+        assertEquals(1, branch.copiedPages());
+        assertNull(branch.getPersonDao().getPersonByName("Nobody"));
+        assertEquals(1, branch.copiedPages());
+    }
+
+    @Test
+    void testDeleteByNameCopiesNothing() {
+        CopyOnWriteCityDao branch = new CopyOnWriteCityDao(cities, persons);
+        branch.getPersonDao().deletePerson("Alice");
+        assertEquals(0, branch.copiedPages());
+        assertNull(branch.getPersonDao().getPersonByName("Alice"));
+        assertNull(branch.getPersonDao().getPersonById(alice.getId()));
+        assertSame(alice, persons.getPersonById(alice.getId()));
+    }
+}
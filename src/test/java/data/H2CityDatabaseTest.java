@@ -0,0 +1,77 @@
+package data;
+
+import domain.city.City;
+import domain.city.RiskLevel;
+import domain.person.Person;
+import org.junit.jupiter.api.*;
+import java.io.File;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class H2CityDatabaseTest {
+    private static final File TEST_DIR = new File(System.getProperty("java.io.tmpdir"), "test_h2_cities");
+    private static final String TEST_DATABASE = new File(TEST_DIR, "cities").getPath();
+
+    private H2CityDatabase db;
+
+    @BeforeEach
+    void setUp() {
+        deleteFiles();
+        db = new H2CityDatabase(TEST_DATABASE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+        deleteFiles();
+    }
+
+    private static void deleteFiles() {
+        File[] files = TEST_DIR.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        TEST_DIR.delete();
+    }
+
+    @Test
+    void testCitiesSurviveReopening() {
+        Person alice = new Person("Alice", 30, "Dhaka");
+        Person bob = new Person("Bob", 40, "Dhaka");
+        City dhaka = new City("Dhaka", 10);
+        dhaka.setResidents(List.of(bob, alice));
+        dhaka.addConnection("Sylhet", 2.5);
+        dhaka.setInfectionRate(0.25);
+        dhaka.setRiskLevel(RiskLevel.HIGH);
+        db.addCity(dhaka);
+        db.addCity(new City("Sylhet", 5));
+        db.close();
+
+        db = new H2CityDatabase(TEST_DATABASE);
+        assertEquals(List.of("Dhaka", "Sylhet"), db.getAllCities().stream().map(City::getName).toList());
+        City read = db.getCityByName("Dhaka");
+        assertEquals(10.0, read.getPopulationDensity());
+        assertEquals(0.25, read.getInfectionRate());
+        assertEquals(RiskLevel.HIGH, read.getRiskLevel());
+        assertEquals(2.5, read.getConnections().get("Sylhet"));
+        assertArrayEquals(new long[]{bob.getId(), alice.getId()}, read.getResidentIds());
+    }
+
+    @Test
+    void testChangesAndDeletesArePersisted() {
+        db.addCity(new City("Dhaka", 10));
+        db.addCity(new City("Sylhet", 5));
+        City dhaka = db.getCityByName("Dhaka");
+        dhaka.setInfectionRate(0.5);
+        db.updateCity(dhaka);
+        db.deleteCity("Sylhet");
+        db.close();
+
+        db = new H2CityDatabase(TEST_DATABASE);
+        assertEquals(0.5, db.getCityByName("Dhaka").getInfectionRate());
+        assertNull(db.getCityByName("Sylhet"));
+        assertEquals(1, db.getAllCities().size());
+    }
+}
@@ -0,0 +1,118 @@
+package data;
+
+import domain.person.HealthStatus;
+import domain.person.Person;
+import org.junit.jupiter.api.*;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.*;
+
+class H2PersonDatabaseTest {
+    private static final File TEST_DIR = new File(System.getProperty("java.io.tmpdir"), "test_h2_persons");
+    private static final String TEST_DATABASE = new File(TEST_DIR, "persons").getPath();
+
+    private H2PersonDatabase db;
+
+    @BeforeEach
+    void setUp() {
+        deleteFiles();
+        db = new H2PersonDatabase(TEST_DATABASE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        db.close();
+        deleteFiles();
+    }
+
+    private static void deleteFiles() {
+        File[] files = TEST_DIR.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        TEST_DIR.delete();
+    }
+
+    @Test
+    void testPersonsSurviveReopening() {
+        Person alice = new Person("Alice", 30, "Dhaka");
+        alice.infect();
+        db.addAll(List.of(alice, new Person("Bob", 40, null)));
+        db.close();
+
+        db = new H2PersonDatabase(TEST_DATABASE);
+        Person read = db.getPersonById(alice.getId());
+        assertEquals("Alice", read.getName());
+        assertEquals(HealthStatus.INFECTED, read.getHealthStatus());
+        assertEquals(alice.getInfectionDuration(), read.getInfectionDuration());
+        assertEquals(alice.getRecoveryTime(), read.getRecoveryTime());
+        assertNull(db.getPersonByName("Bob").getCityName());
+    }
+
+    @Test
+    void testQueriesByCityStatusAndIds() {
+        Person alice = new Person("Alice", 30, "Dhaka");
+        Person bob = new Person("Bob", 40, "Sylhet");
+        Person carol = new Person("Carol", 50, "Dhaka");
+        db.addAll(List.of(alice, bob, carol));
+        carol.infect();
+        db.updatePerson(carol);
+
+        assertEquals(2, db.getPersonsByCity("Dhaka").size());
+        assertEquals(List.of(carol.getId()), db.getInfectedPersons().stream().map(Person::getId).toList());
+        List<Person> byIds = db.getPersonsByIds(new long[]{carol.getId(), -5, alice.getId()});
+        assertEquals(List.of(carol.getId(), alice.getId()), byIds.stream().map(Person::getId).toList());
+        assertEquals(0, db.getPersonsByIds(new long[0]).size());
+
+        db.deletePerson("Bob");
+        db.deletePersonById(alice.getId());
+        assertEquals(List.of(carol.getId()), db.getAllPersons().stream().map(Person::getId).toList());
+    }
+
+    @Test
+    void testCountsByCityAndStatus() {
+        Person alice = new Person("Alice", 30, "Dhaka");
+        Person carol = new Person("Carol", 50, "Dhaka");
+        Person dave = new Person("Dave", 60, "Dhaka");
+        Person bob = new Person("Bob", 40, "Sylhet");
+        alice.infect();
+        carol.infect();
+        bob.setHealthStatus(HealthStatus.RECOVERED);
+        db.addAll(List.of(alice, carol, dave, bob, new Person("Eve", 20, null)));
+
+        Map<String, Map<HealthStatus, Integer>> counts = db.countByCityAndHealthStatus();
+        assertEquals(Set.of("Dhaka", "Sylhet"), counts.keySet());
+        assertEquals(Map.of(HealthStatus.SUSCEPTIBLE, 1, HealthStatus.INFECTED, 2, HealthStatus.RECOVERED, 0),
+                counts.get("Dhaka"));
+        assertEquals(Map.of(HealthStatus.SUSCEPTIBLE, 0, HealthStatus.INFECTED, 0, HealthStatus.RECOVERED, 1),
+                counts.get("Sylhet"));
+    }
+
+    @Test
+    void testUnitOfWorkCommitsWhenClosed() {
+        Person alice = new Person("Alice", 30, "Dhaka");
+        H2PersonDatabase other = new H2PersonDatabase(TEST_DATABASE);
+        try (UnitOfWork day = db.beginUnitOfWork()) {
+            db.addPerson(alice);
+            assertNull(other.getPersonById(alice.getId()));
+        }
+        assertNotNull(other.getPersonById(alice.getId()));
+        other.close();
+    }
+
+    @Test
+    void testFlushCommitsInsideAUnitOfWork() {
+        Person alice = new Person("Alice", 30, "Dhaka");
+        H2PersonDatabase other = new H2PersonDatabase(TEST_DATABASE);
+        try (UnitOfWork day = db.beginUnitOfWork()) {
+            db.addPerson(alice);
+            db.flush();
+            assertNotNull(other.getPersonById(alice.getId()));
+        }
+        other.close();
+    }
+}
@@ -3,11 +3,16 @@ package data;
 import domain.city.City;
 import org.junit.jupiter.api.*;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 class JsonCityDatabaseTest {
     private static final String TEST_FILE = "test_cities.json";
+    private static final String JOURNALED_FILE = new File(System.getProperty("java.io.tmpdir"), "test_journaled_cities.json").getPath();
+    private static final Path JOURNAL = Path.of(JOURNALED_FILE + ".journal");
     private JsonCityDatabase db;
 
     @BeforeEach
@@ -21,6 +26,18 @@ class JsonCityDatabaseTest {
     void tearDown() {
         File f = new File(TEST_FILE);
         if (f.exists()) f.delete();
+        new File(JOURNALED_FILE).delete();
+        JOURNAL.toFile().delete();
+    }
+
+    private static City cityWithResidents(String name, int residents) {
+        City city = new City(name, 10.0);
+        long[] ids = new long[residents];
+        for (int i = 0; i < residents; i++) {
+            ids[i] = i + 1;
+        }
+        city.setResidentIds(ids);
+        return city;
     }
 
     @Test
@@ -57,4 +74,71 @@ class JsonCityDatabaseTest {
         List<City> all = db.getAllCities();
         assertTrue(all.size() >= 2);
     }
+
+    @Test
+    void testUpdateKeepsOrder() {
+        City a = new City("A", 1.0);
+        db.addCity(a);
+        db.addCity(new City("B", 2.0));
+        a.setInfectionRate(0.5);
+        db.updateCity(a);
+        List<City> all = new JsonCityDatabase(TEST_FILE).getAllCities();
+        assertEquals("A", all.get(0).getName());
+        assertEquals(0.5, all.get(0).getInfectionRate());
+    }
+
+    @Test
+    void testJournaledChangesSurviveReopening() {
+        new File(JOURNALED_FILE).delete();
+        JsonCityDatabase journaled = new JsonCityDatabase(JOURNALED_FILE, Long.MAX_VALUE);
+        City a = cityWithResidents("A", 3);
+        journaled.addCity(a);
+        journaled.addCity(new City("B", 2.0));
+        a.setInfectionRate(0.25);
+        a.addConnection("B", 0.5);
+        journaled.updateCity(a);
+        a.setResidentIds(new long[]{7, 8});
+        journaled.updateCity(a);
+        journaled.deleteCity("B");
+        journaled.close();
+
+        City read = new JsonCityDatabase(JOURNALED_FILE, Long.MAX_VALUE).getCityByName("A");
+        assertEquals(10.0, read.getPopulationDensity());
+        assertEquals(0.25, read.getInfectionRate());
+        assertEquals(0.5, read.getConnections().get("B"));
+        assertArrayEquals(new long[]{7, 8}, read.getResidentIds());
+        assertNull(new JsonCityDatabase(JOURNALED_FILE, Long.MAX_VALUE).getCityByName("B"));
+    }
+
+    @Test
+    void testUpdatesJournalOnlyTheChangedFields() throws IOException {
+        new File(JOURNALED_FILE).delete();
+        JsonCityDatabase journaled = new JsonCityDatabase(JOURNALED_FILE, Long.MAX_VALUE);
+        City city = cityWithResidents("Dhaka", 1000);
+        journaled.addCity(city);
+        long added = Files.size(JOURNAL);
+        assertTrue(added > 8000); // The first record holds every resident id
+
+        city.setInfectionRate(0.1);
+        journaled.updateCity(city);
+        long rateRecord = Files.size(JOURNAL) - added;
+        assertTrue(rateRecord < 40, "A rate change took " + rateRecord + " bytes");
+
+        journaled.updateCity(city); // Nothing changed
+        city.setResidentIds(city.getResidentIds().clone()); // Same residents
+        journaled.updateCity(city);
+        assertEquals(added + rateRecord, Files.size(JOURNAL));
+
+        // Within a unit of work each city is recorded once, with its state when the work is committed
+        try (UnitOfWork day = journaled.beginUnitOfWork()) {
+            for (int i = 2; i <= 5; i++) {
+                city.setInfectionRate(0.1 * i);
+                journaled.updateCity(city);
+            }
+            assertEquals(added + rateRecord, Files.size(JOURNAL));
+        }
+        assertEquals(added + 2 * rateRecord, Files.size(JOURNAL));
+        journaled.close();
+        assertEquals(0.5, new JsonCityDatabase(JOURNALED_FILE, Long.MAX_VALUE).getCityByName("Dhaka").getInfectionRate(), 1e-12);
+    }
 }
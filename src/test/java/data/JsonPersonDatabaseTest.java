@@ -0,0 +1,99 @@
+package data;
+
+import domain.person.Person;
+import org.junit.jupiter.api.*;
+import java.io.File;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonPersonDatabaseTest {
+    private static final String TEST_FILE = "test_peoples.json";
+
+    @BeforeEach
+    void setUp() {
+        File f = new File(TEST_FILE);
+        if (f.exists()) f.delete();
+    }
+
+    @AfterEach
+    void tearDown() {
+        File f = new File(TEST_FILE);
+        if (f.exists()) f.delete();
+        new File(TEST_FILE + ".journal").delete();
+    }
+
+    @Test
+    void testWriteThroughSavesImmediately() {
+        JsonPersonDatabase db = new JsonPersonDatabase(TEST_FILE);
+        db.addPerson(new Person("Alice", 30, "Dhaka"));
+        assertNotNull(new JsonPersonDatabase(TEST_FILE).getPersonByName("Alice"));
+    }
+
+    @Test
+    void testWriteBehindDefersUntilFlush() {
+        JsonPersonDatabase db = new JsonPersonDatabase(TEST_FILE, 0);
+        db.addPerson(new Person("Alice", 30, "Dhaka"));
+        db.addPerson(new Person("Bob", 40, "Sylhet"));
+        assertNotNull(db.getPersonByName("Bob"));
+        assertFalse(new File(TEST_FILE).exists());
+
+        db.flush();
+        assertEquals(2, new JsonPersonDatabase(TEST_FILE).getAllPersons().size());
+    }
+
+    @Test
+    void testWriteBehindUpdateIsVisibleAfterFlush() {
+        JsonPersonDatabase db = new JsonPersonDatabase(TEST_FILE, 0);
+        Person person = new Person("Alice", 30, "Dhaka");
+        db.addPerson(person);
+        person.infect();
+        db.updatePerson(person);
+        db.close();
+        Person fetched = new JsonPersonDatabase(TEST_FILE).getPersonByName("Alice");
+        assertEquals(person.getHealthStatus(), fetched.getHealthStatus());
+    }
+
+    @Test
+    void testUpdateKeysOnIdNotName() {
+        JsonPersonDatabase db = new JsonPersonDatabase(TEST_FILE, 0);
+        Person first = new Person("Sam", 20, "Dhaka");
+        Person second = new Person("Sam", 60, "Dhaka");
+        db.addPerson(first);
+        db.addPerson(second);
+        first.infect();
+        db.updatePerson(first);
+        assertEquals(2, db.getAllPersons().size());
+        assertEquals(second.getAge(), db.getPersonById(second.getId()).getAge());
+        db.deletePersonById(first.getId());
+        assertNull(db.getPersonById(first.getId()));
+        assertNotNull(db.getPersonById(second.getId()));
+    }
+
+    @Test
+    void testFilteredQueryStreamsTheFileWithoutLoadingIt() {
+        JsonPersonDatabase writer = new JsonPersonDatabase(TEST_FILE, 0);
+        writer.addAll(List.of(new Person("Alice", 30, "Dhaka"), new Person("Bob", 40, "Sylhet"), new Person("Carol", 50, "Dhaka")));
+        writer.flush();
+
+        JsonPersonDatabase db = new JsonPersonDatabase(TEST_FILE, 0);
+        assertEquals(2, db.getPersonsByCity("Dhaka").size());
+        assertEquals(0, db.getInfectedPersons().size());
+        new File(TEST_FILE).delete(); // Still cold, so the next query reads what is on disk
+        assertEquals(0, db.getPersonsByCity("Dhaka").size());
+    }
+
+    @Test
+    void testFilteredQuerySeesJournaledChanges() {
+        JsonPersonDatabase writer = new JsonPersonDatabase(TEST_FILE, 0, Long.MAX_VALUE);
+        Person alice = new Person("Alice", 30, "Dhaka");
+        writer.addAll(List.of(alice, new Person("Bob", 40, "Sylhet")));
+        alice.infect();
+        writer.updatePerson(alice);
+        writer.close(); // The changes are only in the journal
+
+        JsonPersonDatabase db = new JsonPersonDatabase(TEST_FILE, 0, Long.MAX_VALUE);
+        assertEquals(1, db.getPersonsByCity("Sylhet").size());
+        assertEquals(alice.getId(), db.getInfectedPersons().get(0).getId());
+        db.close();
+    }
+}
@@ -0,0 +1,66 @@
+package data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import domain.person.Person;
+import org.junit.jupiter.api.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonStreamsTest {
+    private static final File TEST_FILE = new File(System.getProperty("java.io.tmpdir"), "test_streams.json");
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        TEST_FILE.delete();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TEST_FILE.delete();
+    }
+
+    @Test
+    void testWriteArrayThenReadList() throws IOException {
+        Person alice = new Person("Alice", 30, "Dhaka");
+        Person bob = new Person("Bob", 40, "Sylhet");
+        JsonStreams.writeArray(objectMapper, TEST_FILE, List.of(alice, bob));
+
+        List<Person> persons = JsonStreams.readList(objectMapper, TEST_FILE, Person.class, person -> true);
+        assertEquals(2, persons.size());
+        assertEquals(alice.getId(), persons.get(0).getId());
+        assertEquals("Sylhet", persons.get(1).getCityName());
+    }
+
+    @Test
+    void testForEachVisitsOnlyTheMatches() throws IOException {
+        JsonStreams.writeArray(objectMapper, TEST_FILE, List.of(
+                new Person("Alice", 30, "Dhaka"), new Person("Bob", 40, "Sylhet"), new Person("Carol", 50, "Dhaka")));
+        List<String> names = new ArrayList<>();
+        JsonStreams.forEach(objectMapper, TEST_FILE, Person.class,
+                person -> "Dhaka".equals(person.getCityName()), person -> names.add(person.getName()));
+        assertEquals(List.of("Alice", "Carol"), names);
+    }
+
+    @Test
+    void testEmptyFileAndEmptyArrayHaveNoElements() throws IOException {
+        Files.writeString(TEST_FILE.toPath(), "");
+        assertEquals(0, JsonStreams.readList(objectMapper, TEST_FILE, Person.class, person -> true).size());
+        JsonStreams.writeArray(objectMapper, TEST_FILE, List.<Person>of());
+        assertEquals(0, JsonStreams.readList(objectMapper, TEST_FILE, Person.class, person -> true).size());
+    }
+
+    @Test
+    void testMalformedArraysAreRefused() throws IOException {
+        Files.writeString(TEST_FILE.toPath(), "{\"name\": \"Alice\"}");
+        assertThrows(IOException.class, () -> JsonStreams.readList(objectMapper, TEST_FILE, Person.class, person -> true));
+        Files.writeString(TEST_FILE.toPath(), "[{\"name\": \"Alice\"}"); // Cut off after the first element
+        assertThrows(IOException.class, () -> JsonStreams.readList(objectMapper, TEST_FILE, Person.class, person -> true));
+        Files.writeString(TEST_FILE.toPath(), "[{\"name\": \"Alice\"}, 42, {\"name\": \"Bob\"}]");
+        assertThrows(IOException.class, () -> JsonStreams.readList(objectMapper, TEST_FILE, Person.class, person -> true));
+    }
+}
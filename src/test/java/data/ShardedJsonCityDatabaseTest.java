@@ -0,0 +1,88 @@
+package data;
+
+import domain.city.City;
+import domain.person.Person;
+import org.junit.jupiter.api.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedJsonCityDatabaseTest {
+    private static final File TEST_DIR = new File(System.getProperty("java.io.tmpdir"), "test_city_shards");
+
+    @BeforeEach
+    void setUp() {
+        tearDown();
+    }
+
+    @AfterEach
+    void tearDown() {
+        File[] files = TEST_DIR.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        TEST_DIR.delete();
+    }
+
+    private static Path shard(String cityName) {
+        return TEST_DIR.toPath().resolve(cityName + ".json");
+    }
+
+    @Test
+    void testWriteAndReadRoundTrip() {
+        Person alice = new Person("Alice", 30, "Dhaka");
+        City dhaka = new City("Dhaka", 10);
+        dhaka.setResidents(List.of(alice));
+        dhaka.addConnection("Sylhet", 2.0);
+        dhaka.setInfectionRate(0.25);
+        ShardedJsonCityDatabase db = new ShardedJsonCityDatabase(TEST_DIR.getPath());
+        db.addCity(dhaka);
+        db.addCity(new City("Sylhet", 5));
+        db.flush();
+
+        ShardedJsonCityDatabase reopened = new ShardedJsonCityDatabase(TEST_DIR.getPath());
+        assertEquals(2, reopened.getAllCities().size());
+        City read = reopened.getCityByName("Dhaka");
+        assertEquals(0.25, read.getInfectionRate());
+        assertEquals(2.0, read.getConnections().get("Sylhet"));
+        assertArrayEquals(new long[]{alice.getId()}, read.getResidentIds());
+    }
+
+    @Test
+    void testFlushRewritesOnlyDirtyCities() throws IOException {
+        ShardedJsonCityDatabase db = new ShardedJsonCityDatabase(TEST_DIR.getPath());
+        db.addCity(new City("Dhaka", 10));
+        db.addCity(new City("Sylhet", 5));
+        db.flush();
+        FileTime untouched = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(shard("Sylhet"), untouched);
+
+        City dhaka = db.getCityByName("Dhaka");
+        dhaka.setInfectionRate(0.5);
+        db.updateCity(dhaka);
+        db.flush();
+
+        assertEquals(untouched, Files.getLastModifiedTime(shard("Sylhet")));
+        assertEquals(0.5, new ShardedJsonCityDatabase(TEST_DIR.getPath()).getCityByName("Dhaka").getInfectionRate());
+    }
+
+    @Test
+    void testDeletedCityLosesItsFile() {
+        ShardedJsonCityDatabase db = new ShardedJsonCityDatabase(TEST_DIR.getPath());
+        db.addCity(new City("Dhaka", 10));
+        db.addCity(new City("Sylhet", 5));
+        db.flush();
+
+        db.deleteCity("Sylhet");
+        assertTrue(Files.exists(shard("Sylhet"))); // Until the next flush
+        db.flush();
+        assertFalse(Files.exists(shard("Sylhet")));
+        assertNull(new ShardedJsonCityDatabase(TEST_DIR.getPath()).getCityByName("Sylhet"));
+    }
+}
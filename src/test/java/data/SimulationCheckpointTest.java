@@ -0,0 +1,88 @@
+package data;
+
+import org.junit.jupiter.api.*;
+import java.io.File;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationCheckpointTest {
+    private static final String TEST_FILE = "test_simulation.ckpt";
+
+    @AfterEach
+    void tearDown() {
+        File f = new File(TEST_FILE);
+        if (f.exists()) f.delete();
+    }
+
+    @Test
+    void testWriteAndReadRoundTrip() throws IOException {
+        SimulationCheckpoint.CityState dhaka = new SimulationCheckpoint.CityState("Dhaka", 0.25, "HIGH",
+                new long[]{7, 9}, new byte[]{1, 2}, new int[]{3, 0}, new short[]{14, 14}, new int[0],
+                new String[]{"Sylhet", "Khulna"}, new double[]{0.3, 0.1});
+        SimulationCheckpoint.CityState sylhet = new SimulationCheckpoint.CityState("Sylhet", 0.0, "LOW",
+                new long[]{11}, new byte[]{0}, new int[]{0}, new short[]{10}, null,
+                new String[0], new double[0]);
+        new SimulationCheckpoint(42, 20, 30, "COLUMNAR", true, true, 0.1, 14, 2, List.of(dhaka, sylhet))
+                .write(Paths.get(TEST_FILE));
+
+        SimulationCheckpoint read = SimulationCheckpoint.read(Paths.get(TEST_FILE));
+        assertEquals(42, read.seed);
+        assertEquals(20, read.currentDay);
+        assertEquals(30, read.endDay);
+        assertEquals("COLUMNAR", read.engineMode);
+        assertTrue(read.activeSetScheduling);
+        assertEquals(2, read.cities.size());
+        SimulationCheckpoint.CityState city = read.cities.get(0);
+        assertEquals("Dhaka", city.name);
+        assertEquals("HIGH", city.riskLevel);
+        assertArrayEquals(new long[]{7, 9}, city.residentIds);
+        assertArrayEquals(new byte[]{1, 2}, city.status);
+        assertArrayEquals(new int[]{3, 0}, city.infectionDuration);
+        assertArrayEquals(new short[]{14, 14}, city.recoveryTime);
+        assertArrayEquals(new int[0], city.susceptibleOrder);
+        assertNull(read.cities.get(1).susceptibleOrder);
+        assertEquals("Khulna", city.connectionTargets[1]);
+        assertArrayEquals(new double[]{0.3, 0.1}, city.connectionWeights, 0);
+        assertEquals(0, read.cities.get(1).connectionTargets.length);
+    }
+
+    @Test
+    void testReadsVersion1() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(bytes);
+        header.writeInt(0x4453434B);
+        header.writeInt(1);
+        DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes));
+        out.writeLong(42);
+        out.writeInt(20);
+        out.writeInt(30);
+        out.writeUTF("OBJECTS");
+        out.writeBoolean(true);
+        out.writeDouble(0.1);
+        out.writeInt(14);
+        out.writeInt(2);
+        out.writeInt(1);
+        out.writeUTF("Sylhet");
+        out.writeDouble(0.0);
+        out.writeUTF("LOW");
+        out.writeInt(1);
+        out.writeLong(11);
+        out.write(0);
+        out.writeInt(0);
+        out.writeShort(10);
+        out.writeInt(-1);
+        out.close();
+        Files.write(Paths.get(TEST_FILE), bytes.toByteArray());
+
+        SimulationCheckpoint read = SimulationCheckpoint.read(Paths.get(TEST_FILE));
+        assertFalse(read.activeSetScheduling);
+        assertArrayEquals(new long[]{11}, read.cities.get(0).residentIds);
+        assertNull(read.cities.get(0).connectionTargets);
+    }
+}
@@ -0,0 +1,26 @@
+package data;
+
+import org.junit.jupiter.api.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitOfWorkTrackerTest {
+
+    @Test
+    void testNestedScopesCommitOnceWhenTheOutermostCloses() {
+        AtomicInteger commits = new AtomicInteger();
+        UnitOfWorkTracker tracker = new UnitOfWorkTracker(commits::incrementAndGet);
+        UnitOfWork outer = tracker.begin();
+        UnitOfWork inner = tracker.begin();
+        inner.close();
+        inner.close(); // Closing twice does not close the outer scope
+        assertTrue(tracker.isOpen());
+        assertEquals(0, commits.get());
+
+        outer.close();
+        assertFalse(tracker.isOpen());
+        assertEquals(1, commits.get());
+        outer.close();
+        assertEquals(1, commits.get());
+    }
+}
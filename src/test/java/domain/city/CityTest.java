@@ -0,0 +1,30 @@
+package domain.city;
+
+import domain.person.HealthStatus;
+import domain.person.Person;
+import org.junit.jupiter.api.*;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CityTest {
+
+    @Test
+    void testCountsFollowResidentsAndTransitions() {
+        City city = new City("Dhaka", 10.0);
+        List<Person> residents = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            residents.add(new Person("P" + i, 30, "Dhaka"));
+        }
+        residents.get(0).infect();
+        city.setResidents(residents);
+        assertEquals(4, city.countOf(HealthStatus.SUSCEPTIBLE));
+        assertEquals(1, city.countOf(HealthStatus.INFECTED));
+
+        city.addResident(new Person("P5", 30, "Dhaka"));
+        city.recordTransition(HealthStatus.INFECTED, HealthStatus.RECOVERED, 1);
+        assertEquals(5, city.countOf(HealthStatus.SUSCEPTIBLE));
+        assertEquals(0, city.countOf(HealthStatus.INFECTED));
+        assertEquals(1, city.countOf(HealthStatus.RECOVERED));
+    }
+}
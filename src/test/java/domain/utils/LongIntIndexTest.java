@@ -0,0 +1,95 @@
+package domain.utils;
+
+import org.junit.jupiter.api.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongIntIndexTest {
+
+    // Same as LongIntIndex.hash, to pick keys with a given home slot
+    private static int home(long key, int capacity) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (capacity - 1);
+    }
+
+    private static long[] keysWithHome(int slot, int capacity, int count) {
+        long[] keys = new long[count];
+        int found = 0;
+        for (long key = 1; found < count; key++) {
+            if (home(key, capacity) == slot) {
+                keys[found++] = key;
+            }
+        }
+        return keys;
+    }
+
+    @Test
+    void testKeyZeroIsNeverPresent() {
+        LongIntIndex index = new LongIntIndex();
+        assertEquals(-1, index.get(0));
+        assertEquals(-1, index.remove(0));
+        index.put(1, 0);
+        assertEquals(-1, index.get(0));
+        assertEquals(-1, index.remove(0));
+        assertEquals(1, index.size());
+        assertThrows(IllegalArgumentException.class, () -> index.put(0, 1));
+    }
+
+    @Test
+    void testRemoveShiftsBackAcrossTheEndOfTheTable() {
+        LongIntIndex index = new LongIntIndex(4); // 8 slots
+        long[] lastSlot = keysWithHome(7, 8, 3); // Probe run 7, 0, 1
+        long[] firstSlot = keysWithHome(0, 8, 1); // Lands behind the run, in slot 2
+        for (int i = 0; i < 3; i++) {
+            index.put(lastSlot[i], i);
+        }
+        index.put(firstSlot[0], 10);
+
+        assertEquals(0, index.remove(lastSlot[0]));
+        assertEquals(-1, index.get(lastSlot[0]));
+        assertEquals(1, index.get(lastSlot[1]));
+        assertEquals(2, index.get(lastSlot[2]));
+        assertEquals(10, index.get(firstSlot[0]));
+
+        assertEquals(1, index.remove(lastSlot[1]));
+        assertEquals(2, index.get(lastSlot[2]));
+        assertEquals(10, index.get(firstSlot[0]));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testResizeKeepsEveryEntry() {
+        LongIntIndex index = new LongIntIndex(4);
+        for (int i = 1; i <= 1000; i++) {
+            index.put(i, i * 2);
+        }
+        assertEquals(1000, index.size());
+        for (int i = 1; i <= 1000; i++) {
+            assertEquals(i * 2, index.get(i));
+        }
+        assertEquals(-1, index.get(1001));
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomChanges() {
+        LongIntIndex index = new LongIntIndex(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int step = 0; step < 20000; step++) {
+            long key = 1 + random.nextInt(64);
+            if (random.nextBoolean()) {
+                index.put(key, step);
+                expected.put(key, step);
+            } else {
+                Integer removed = expected.remove(key);
+                assertEquals(removed != null ? removed : -1, index.remove(key));
+            }
+        }
+        assertEquals(expected.size(), index.size());
+        for (long key = 1; key <= 64; key++) {
+            assertEquals((int) expected.getOrDefault(key, -1), index.get(key));
+        }
+    }
+}
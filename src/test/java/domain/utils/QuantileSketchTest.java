@@ -0,0 +1,42 @@
+package domain.utils;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    @Test
+    void testQuantilesAreWithinRelativeAccuracy() {
+        QuantileSketch sketch = new QuantileSketch(0.01);
+        for (int value = 1; value <= 1000; value++) {
+            sketch.add(value);
+        }
+        assertEquals(1000, sketch.count());
+        assertEquals(50, sketch.quantile(0.05), 50 * 0.01 + 1);
+        assertEquals(500, sketch.quantile(0.5), 500 * 0.01 + 1);
+        assertEquals(950, sketch.quantile(0.95), 950 * 0.01 + 1);
+    }
+
+    @Test
+    void testMergeMatchesSingleSketch() {
+        QuantileSketch all = new QuantileSketch(0.01);
+        QuantileSketch low = new QuantileSketch(0.01);
+        QuantileSketch high = new QuantileSketch(0.01);
+        for (int value = 0; value < 500; value++) {
+            all.add(value);
+            (value < 100 ? low : high).add(value);
+        }
+        low.merge(high);
+        assertEquals(all.count(), low.count());
+        for (double q : new double[]{0.0, 0.05, 0.5, 0.95, 1.0}) {
+            assertEquals(all.quantile(q), low.quantile(q), 1e-9);
+        }
+        assertEquals(0.0, low.quantile(0.0));
+    }
+
+    @Test
+    void testEmptySketchHasNoQuantiles() {
+        assertTrue(Double.isNaN(new QuantileSketch(0.01).quantile(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(0.01).add(-1));
+    }
+}
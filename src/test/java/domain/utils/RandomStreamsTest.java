@@ -0,0 +1,35 @@
+package domain.utils;
+
+import org.junit.jupiter.api.*;
+import java.util.SplittableRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RandomStreamsTest {
+
+    @Test
+    void testSameSeedCityAndDayGiveSameStream() {
+        SplittableRandom first = new RandomStreams(42).forCity("Dhaka", 3);
+        SplittableRandom second = new RandomStreams(42).forCity("Dhaka", 3);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.nextLong(), second.nextLong());
+        }
+    }
+
+    @Test
+    void testStreamsDifferByCityDayAndSeed() {
+        RandomStreams streams = new RandomStreams(42);
+        long dhaka = streams.forCity("Dhaka", 3).nextLong();
+        assertNotEquals(dhaka, streams.forCity("Sylhet", 3).nextLong());
+        assertNotEquals(dhaka, streams.forCity("Dhaka", 4).nextLong());
+        assertNotEquals(dhaka, streams.forCity("Dhaka", RandomStreams.DENSITY).nextLong());
+        assertNotEquals(dhaka, new RandomStreams(43).forCity("Dhaka", 3).nextLong());
+    }
+
+    @Test
+    void testNamesWithTheSameHashCodeGetDifferentStreams() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        RandomStreams streams = new RandomStreams(42);
+        assertNotEquals(streams.forCity("Aa", 3).nextLong(), streams.forCity("BB", 3).nextLong());
+        assertNotEquals(streams.forCity("AaBB", 3).nextLong(), streams.forCity("BBAa", 3).nextLong());
+    }
+}
@@ -0,0 +1,82 @@
+package presentation;
+
+import data.JsonCityDatabase;
+import data.JsonPersonDatabase;
+import domain.city.City;
+import domain.person.Person;
+import domain.utils.MyLogger;
+import org.junit.jupiter.api.*;
+import service.engine.EngineMode;
+import java.io.File;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationForkTest {
+    private static final File DIR = new File(System.getProperty("java.io.tmpdir"), "test_fork");
+    private static final String CITY_FILE = new File(DIR, "cities.json").getPath();
+    private static final String PERSON_FILE = new File(DIR, "peoples.json").getPath();
+
+    @BeforeEach
+    void setUp() {
+        MyLogger.setEnabled(false);
+        tearDown();
+        DIR.mkdirs();
+    }
+
+    @AfterEach
+    void tearDown() {
+        File[] files = DIR.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        DIR.delete();
+    }
+
+    // Every resident's status and infection duration, and each city's rate, in store order
+    private static String state(Simulation simulation) {
+        StringBuilder state = new StringBuilder("day " + simulation.getCurrentDay());
+        for (City city : simulation.getCityService().getAllCities()) {
+            state.append('\n').append(city.getName()).append(' ').append(city.getInfectionRate()).append(':');
+            for (Person person : city.getResidents()) {
+                state.append(' ').append(person.getHealthStatus().ordinal()).append('/').append(person.getInfectionDuration());
+            }
+        }
+        return state.toString();
+    }
+
+    private void assertUnchangedBranchEndsLikeItsParent(EngineMode engineMode) {
+        Simulation parent = new Simulation(new JsonCityDatabase(CITY_FILE), new JsonPersonDatabase(PERSON_FILE, 0));
+        parent.setEngineMode(engineMode);
+        parent.setRandomSeed(9);
+        parent.setSimulationParameters(0.1, 4, 2);
+        parent.setInterCityTransmission(true);
+        parent.initialize();
+        parent.initializePopulations();
+        parent.initializeConnections();
+        parent.runSimulation(5);
+
+        Simulation branch = parent.fork();
+        branch.runSimulation(10); // The branch runs first, while it still shares pages with the parent
+        parent.runSimulation(10);
+        assertEquals(state(parent), state(branch));
+    }
+
+    @Test
+    void testUnchangedBranchMatchesObjects() {
+        assertUnchangedBranchEndsLikeItsParent(EngineMode.OBJECTS);
+    }
+
+    @Test
+    void testUnchangedBranchMatchesColumnar() {
+        assertUnchangedBranchEndsLikeItsParent(EngineMode.COLUMNAR);
+    }
+
+    @Test
+    void testUnchangedBranchMatchesOffHeap() {
+        assertUnchangedBranchEndsLikeItsParent(EngineMode.OFF_HEAP);
+    }
+
+    @Test
+    void testUnchangedBranchMatchesAggregate() {
+        assertUnchangedBranchEndsLikeItsParent(EngineMode.AGGREGATE);
+    }
+}
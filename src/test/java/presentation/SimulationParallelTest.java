@@ -0,0 +1,69 @@
+package presentation;
+
+import data.JsonCityDatabase;
+import data.JsonPersonDatabase;
+import domain.city.City;
+import domain.person.HealthStatus;
+import domain.utils.MyLogger;
+import org.junit.jupiter.api.*;
+import service.engine.EngineMode;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationParallelTest {
+    private static final File DIR = new File(System.getProperty("java.io.tmpdir"), "test_parallel");
+
+    @BeforeEach
+    void setUp() {
+        MyLogger.setEnabled(false);
+        tearDown();
+        DIR.mkdirs();
+    }
+
+    @AfterEach
+    void tearDown() {
+        File[] files = DIR.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        DIR.delete();
+    }
+
+    // Each city's susceptible, infected and recovered counts at the end of every day
+    private static List<String> dailyCounts(String name, int parallelism, int days) {
+        Simulation simulation = new Simulation(new JsonCityDatabase(new File(DIR, name + "_cities.json").getPath()),
+                new JsonPersonDatabase(new File(DIR, name + "_peoples.json").getPath(), 0));
+        simulation.setEngineMode(EngineMode.OBJECTS);
+        simulation.setParallelism(parallelism);
+        simulation.setRandomSeed(11);
+        simulation.setSimulationParameters(0.2, 4, 2);
+        simulation.setInterCityTransmission(true);
+        simulation.initialize();
+        simulation.initializePopulations();
+        simulation.initializeConnections();
+        List<String> counts = new ArrayList<>();
+        for (int day = 1; day <= days; day++) {
+            simulation.runSimulation(1);
+            simulation.setSimulationParameters(0.2, 4, 0); // Seed only once
+            StringBuilder line = new StringBuilder("day " + simulation.getCurrentDay());
+            for (City city : simulation.getCityService().getAllCities()) {
+                line.append(' ').append(city.getName()).append('=')
+                        .append(city.countOf(HealthStatus.SUSCEPTIBLE)).append('/')
+                        .append(city.countOf(HealthStatus.INFECTED)).append('/')
+                        .append(city.countOf(HealthStatus.RECOVERED));
+            }
+            counts.add(line.toString());
+        }
+        return counts;
+    }
+
+    @Test
+    void testParallelCitiesMatchSequentialRunEveryDay() {
+        List<String> sequential = dailyCounts("sequential", 1, 20);
+        List<String> parallel = dailyCounts("parallel", 4, 20);
+        assertEquals(sequential, parallel);
+        assertNotEquals(sequential.get(0), sequential.get(19)); // The epidemic actually moved
+    }
+}
@@ -0,0 +1,118 @@
+package presentation;
+
+import data.JsonCityDatabase;
+import data.JsonPersonDatabase;
+import domain.city.City;
+import domain.person.Person;
+import domain.utils.MyLogger;
+import org.junit.jupiter.api.*;
+import service.engine.EngineMode;
+import java.io.File;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationResumeTest {
+    private static final File DIR = new File(System.getProperty("java.io.tmpdir"), "test_resume");
+    private static final String CITY_FILE = new File(DIR, "cities.json").getPath();
+    private static final String PERSON_FILE = new File(DIR, "peoples.json").getPath();
+    private static final String CHECKPOINT_FILE = new File(DIR, "simulation.ckpt").getPath();
+
+    @BeforeEach
+    void setUp() {
+        MyLogger.setEnabled(false);
+        tearDown();
+        DIR.mkdirs();
+    }
+
+    @AfterEach
+    void tearDown() {
+        File[] files = DIR.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        DIR.delete();
+    }
+
+    // Every resident's status and infection duration, and each city's rate, in store order
+    private static String state(Simulation simulation) {
+        StringBuilder state = new StringBuilder("day " + simulation.getCurrentDay());
+        for (City city : simulation.getCityService().getAllCities()) {
+            state.append('\n').append(city.getName()).append(' ').append(city.getInfectionRate()).append(':');
+            for (Person person : city.getResidents()) {
+                state.append(' ').append(person.getHealthStatus().ordinal()).append('/').append(person.getInfectionDuration());
+            }
+        }
+        return state.toString();
+    }
+
+    private void assertResumeMatchesUninterruptedRun(EngineMode engineMode, boolean closeDhaka) {
+        Simulation uninterrupted = new Simulation(new JsonCityDatabase(CITY_FILE), new JsonPersonDatabase(PERSON_FILE, 0));
+        uninterrupted.setEngineMode(engineMode);
+        uninterrupted.setRandomSeed(5);
+        uninterrupted.setSimulationParameters(0.1, 2, 1);
+        uninterrupted.setActiveSetScheduling(true);
+        uninterrupted.initialize();
+        uninterrupted.initializePopulations();
+        uninterrupted.initializeConnections();
+        uninterrupted.setCheckpointing(10, CHECKPOINT_FILE);
+        uninterrupted.runSimulation(25); // Last checkpoint after day 20
+        uninterrupted.getPopulationManager().flush();
+        String expected = state(uninterrupted);
+
+        // A restart: new stores over the same files, which hold the people as they were at the end of the run,
+        // and none of the run's settings
+        Simulation restarted = new Simulation(new JsonCityDatabase(CITY_FILE), new JsonPersonDatabase(PERSON_FILE, 0));
+        assertTrue(restarted.loadSaved());
+        if (closeDhaka) {
+            restarted.closeConnections("Dhaka"); // The checkpoint's connections replace these
+        }
+        assertTrue(restarted.resume(CHECKPOINT_FILE));
+        assertEquals(expected, state(restarted));
+    }
+
+    @Test
+    void testResumeAfterRestartMatchesObjects() {
+        assertResumeMatchesUninterruptedRun(EngineMode.OBJECTS, false);
+    }
+
+    @Test
+    void testResumeAfterRestartMatchesColumnar() {
+        assertResumeMatchesUninterruptedRun(EngineMode.COLUMNAR, false);
+    }
+
+    @Test
+    void testResumeAfterRestartMatchesOffHeap() {
+        assertResumeMatchesUninterruptedRun(EngineMode.OFF_HEAP, false);
+    }
+
+    @Test
+    void testResumeRestoresConnections() {
+        assertResumeMatchesUninterruptedRun(EngineMode.OBJECTS, true);
+    }
+
+    @Test
+    void testAggregateRunWritesNoCheckpoint() {
+        Simulation aggregate = new Simulation(new JsonCityDatabase(CITY_FILE), new JsonPersonDatabase(PERSON_FILE, 0));
+        aggregate.setEngineMode(EngineMode.AGGREGATE);
+        aggregate.setRandomSeed(5);
+        aggregate.initialize();
+        aggregate.initializePopulations();
+        aggregate.initializeConnections();
+        aggregate.setCheckpointing(5, CHECKPOINT_FILE);
+        aggregate.runSimulation(12);
+        assertEquals(12, aggregate.getCurrentDay());
+        assertFalse(new File(CHECKPOINT_FILE).exists());
+    }
+
+    @Test
+    void testResumeRefusesOtherPeople() {
+        Simulation first = new Simulation(new JsonCityDatabase(CITY_FILE), new JsonPersonDatabase(PERSON_FILE, 0));
+        first.setRandomSeed(5);
+        first.initialize();
+        first.initializePopulations();
+        first.initializeConnections();
+        first.setCheckpointing(5, CHECKPOINT_FILE);
+        first.runSimulation(6);
+        first.initializePopulations(); // New people with new ids
+        assertFalse(first.resume(CHECKPOINT_FILE));
+    }
+}
@@ -0,0 +1,33 @@
+package service.engine;
+
+import service.Graph;
+import org.junit.jupiter.api.*;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActiveCitiesTest {
+
+    @Test
+    void testInfectedCityActivatesTheCitiesItReaches() {
+        Graph graph = new Graph();
+        for (String city : List.of("Dhaka", "Sylhet", "Khulna")) {
+            graph.addVertex(city);
+        }
+        graph.addEdge("Sylhet", "Dhaka", 0.5); // Sylhet imports from Dhaka
+        CouplingOperator coupling = new CouplingOperator(graph, List.of("Dhaka", "Sylhet", "Khulna"));
+
+        ActiveCities active = new ActiveCities(3, coupling);
+        assertEquals(0, active.size());
+
+        active.update(0, true);
+        assertArrayEquals(new int[]{0, 1}, active.toArray());
+        assertFalse(active.isActive(2));
+
+        active.update(1, true);
+        active.update(0, false);
+        assertArrayEquals(new int[]{1}, active.toArray());
+
+        active.update(1, false);
+        assertEquals(0, active.size());
+    }
+}
@@ -0,0 +1,114 @@
+package service.engine;
+
+import domain.city.City;
+import domain.person.HealthStatus;
+import domain.person.Person;
+import domain.utils.RandomStreams;
+import org.junit.jupiter.api.*;
+import service.Graph;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregateEngineTest {
+    private static final double N = 1000;
+    private static final double BETA = 0.5;
+    private static final int RECOVERY_TIME = 4;
+
+    // The same SIR model integrated with many small RK4 steps, as the reference trajectory
+    private static double[] reference(double s, double i, int days) {
+        int steps = 1000;
+        double h = 1.0 / steps;
+        double gamma = 1.0 / RECOVERY_TIME;
+        for (int n = 0; n < days * steps; n++) {
+            double[] k1 = sir(s, i, gamma);
+            double[] k2 = sir(s + h / 2 * k1[0], i + h / 2 * k1[1], gamma);
+            double[] k3 = sir(s + h / 2 * k2[0], i + h / 2 * k2[1], gamma);
+            double[] k4 = sir(s + h * k3[0], i + h * k3[1], gamma);
+            s += h / 6 * (k1[0] + 2 * k2[0] + 2 * k3[0] + k4[0]);
+            i += h / 6 * (k1[1] + 2 * k2[1] + 2 * k3[1] + k4[1]);
+        }
+        return new double[]{s, i};
+    }
+
+    private static double[] sir(double s, double i, double gamma) {
+        double infections = BETA * s * i / N;
+        return new double[]{-infections, infections - gamma * i};
+    }
+
+    @Test
+    void testRungeKuttaFollowsTheSirTrajectory() {
+        AggregateEngine engine = new AggregateEngine(List.of("Dhaka"), new double[]{990}, new double[]{10},
+                new double[]{0}, BETA, RECOVERY_TIME, AggregateEngine.Step.ODE, null, new RandomStreams(1));
+        // S + I - (N γ / β) ln S stays constant along any SIR trajectory
+        double invariant = 990 + 10 - N / (BETA * RECOVERY_TIME) * Math.log(990);
+        for (int day = 1; day <= 60; day++) {
+            engine.tick(day);
+            if (day % 10 == 0) {
+                double[] expected = reference(990, 10, day);
+                assertEquals(expected[0], engine.getSusceptible(0), 0.5, "S on day " + day);
+                assertEquals(expected[1], engine.getInfected(0), 0.5, "I on day " + day);
+            }
+            double s = engine.getSusceptible(0);
+            assertEquals(invariant, s + engine.getInfected(0) - N / (BETA * RECOVERY_TIME) * Math.log(s), 0.5);
+            assertEquals(N, s + engine.getInfected(0) + engine.getRecovered(0), 1e-9);
+        }
+        assertTrue(engine.getRecovered(0) > 700); // R0 = 2 infects most of the city
+    }
+
+    @Test
+    void testChainBinomialConservesEachCity() {
+        List<String> cities = List.of("Dhaka", "Sylhet", "Khulna");
+        Graph graph = new Graph();
+        cities.forEach(graph::addVertex);
+        graph.addEdge("Dhaka", "Sylhet", 0.5);
+        graph.addEdge("Sylhet", "Dhaka", 0.5);
+        graph.addEdge("Khulna", "Dhaka", 0.2);
+        AggregateEngine engine = new AggregateEngine(cities, new double[]{490, 300, 200}, new double[]{10, 0, 0},
+                new double[]{0, 0, 0}, BETA, RECOVERY_TIME, AggregateEngine.Step.CHAIN_BINOMIAL,
+                new CouplingOperator(graph, cities), new RandomStreams(3));
+        double[] population = {500, 300, 200};
+        for (int day = 1; day <= 80; day++) {
+            engine.tick(day);
+            for (int c = 0; c < cities.size(); c++) {
+                double s = engine.getSusceptible(c);
+                double i = engine.getInfected(c);
+                double r = engine.getRecovered(c);
+                assertEquals(population[c], s + i + r, 0.0);
+                assertTrue(s >= 0 && i >= 0 && r >= 0);
+                assertEquals(Math.rint(i), i, 0.0); // Whole people
+            }
+        }
+        assertTrue(engine.getRecovered(1) > 0); // Sylhet was reached through its connection
+    }
+
+    @Test
+    void testApplyToMovesResidentsToTheCounts() {
+        City city = new City("Dhaka", 10.0);
+        for (int n = 0; n < 10; n++) {
+            city.addResident(new Person("P" + n, 20, "Dhaka"));
+        }
+        Person longest = city.getResidents().get(3);
+        longest.infect();
+        longest.setInfectionDuration(5);
+        Person recent = city.getResidents().get(7);
+        recent.infect();
+        recent.setInfectionDuration(2);
+        AggregateEngine engine = new AggregateEngine(List.of("Dhaka"), new double[]{6}, new double[]{3},
+                new double[]{1}, BETA, RECOVERY_TIME, AggregateEngine.Step.ODE, null, new RandomStreams(1));
+
+        List<Person> changed = engine.applyTo(city);
+        city.recountResidents();
+        assertEquals(6, city.countOf(HealthStatus.SUSCEPTIBLE));
+        assertEquals(3, city.countOf(HealthStatus.INFECTED));
+        assertEquals(1, city.countOf(HealthStatus.RECOVERED));
+        assertEquals(HealthStatus.RECOVERED, longest.getHealthStatus()); // Longest infection recovers first
+        assertEquals(HealthStatus.INFECTED, recent.getHealthStatus());
+        assertEquals(3, changed.size());
+        assertTrue(changed.contains(longest));
+        assertFalse(changed.contains(recent));
+
+        City elsewhere = new City("Elsewhere", 10.0);
+        elsewhere.addResident(new Person("Q", 20, "Elsewhere"));
+        assertTrue(engine.applyTo(elsewhere).isEmpty());
+    }
+}
@@ -0,0 +1,44 @@
+package service.engine;
+
+import org.junit.jupiter.api.*;
+import java.util.SplittableRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinomialTest {
+
+    private void assertMoments(long n, double p) {
+        SplittableRandom random = new SplittableRandom(7);
+        int samples = 20000;
+        double sum = 0, sumOfSquares = 0;
+        for (int i = 0; i < samples; i++) {
+            long x = Binomial.sample(random, n, p);
+            assertTrue(x >= 0 && x <= n);
+            sum += x;
+            sumOfSquares += (double) x * x;
+        }
+        double mean = sum / samples;
+        double variance = sumOfSquares / samples - mean * mean;
+        double expectedVariance = n * p * (1 - p);
+        assertEquals(n * p, mean, 5 * Math.sqrt(expectedVariance / samples));
+        assertEquals(expectedVariance, variance, 0.05 * expectedVariance);
+    }
+
+    @Test
+    void testSmallMeanUsesWaitingTimes() {
+        assertMoments(1000, 0.003);
+    }
+
+    @Test
+    void testLargeMeanUsesRejection() {
+        assertMoments(100000, 0.3);
+        assertMoments(1000, 0.8);
+    }
+
+    @Test
+    void testEdgeCases() {
+        SplittableRandom random = new SplittableRandom(1);
+        assertEquals(0, Binomial.sample(random, 0, 0.5));
+        assertEquals(0, Binomial.sample(random, 100, 0.0));
+        assertEquals(100, Binomial.sample(random, 100, 1.0));
+    }
+}
@@ -0,0 +1,106 @@
+package service.engine;
+
+import domain.city.City;
+import domain.person.HealthStatus;
+import domain.person.Person;
+import org.junit.jupiter.api.*;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CityPopulationTest {
+
+    private City cityWith(int residents) {
+        City city = new City("Dhaka", 10.0);
+        for (int i = 0; i < residents; i++) {
+            city.addResident(new Person("P" + i, i * 5, "Dhaka"));
+        }
+        return city;
+    }
+
+    @Test
+    void testRecoveryMatchesPersonObjects() {
+        City objects = cityWith(20);
+        City columns = cityWith(20);
+        CityPopulation population = CityPopulation.of(columns, 1);
+        for (Person person : objects.getResidents()) {
+            person.infect();
+        }
+        population.spread(1.0, new Random(1), 1);
+        assertEquals(20, population.getInfectedCount());
+
+        for (int day = 1; day <= 20; day++) {
+            objects.getResidents().forEach(Person::updateHealthStatus);
+            population.recover(day);
+            for (int i = 0; i < 20; i++) {
+                Person person = objects.getResidents().get(i);
+                assertEquals(person.getHealthStatus(), population.getHealthStatus(i));
+                assertEquals(person.getInfectionDuration(), population.getInfectionDuration(i));
+            }
+        }
+        assertEquals(0, population.getInfectedCount());
+    }
+
+    @Test
+    void testExistingInfectionsKeepTheirDuration() {
+        City city = cityWith(3);
+        Person person = city.getResidents().get(2); // Age 10, recovers after 14 days
+        person.infect();
+        person.setInfectionDuration(12);
+        CityPopulation population = CityPopulation.of(city, 30);
+        assertEquals(12, population.getInfectionDuration(2));
+
+        population.recover(30);
+        assertEquals(13, population.getInfectionDuration(2));
+        population.recover(31);
+        assertEquals(14, population.getInfectionDuration(2));
+        assertEquals(1, population.recover(32));
+        assertEquals(HealthStatus.RECOVERED, population.getHealthStatus(2));
+    }
+
+    @Test
+    void testSpreadOnlyInfectsSusceptibleAgents() {
+        CityPopulation population = CityPopulation.of(cityWith(200), 1);
+        Random random = new Random(3);
+        int infections = 0;
+        for (int day = 1; day <= 30; day++) {
+            infections += population.spread(0.2, random, day);
+            population.recover(day);
+        }
+        int susceptible = 0;
+        for (int i = 0; i < population.size(); i++) {
+            if (population.getHealthStatus(i) == HealthStatus.SUSCEPTIBLE) {
+                susceptible++;
+            }
+        }
+        assertEquals(susceptible, population.getSusceptibleCount());
+        assertEquals(200, susceptible + infections);
+    }
+
+    @Test
+    void testWriteBackReturnsOnlyChangedPeople() {
+        City city = cityWith(10);
+        CityPopulation population = CityPopulation.of(city, 1);
+        assertTrue(population.writeBack(city).isEmpty());
+
+        population.spread(1.0, new Random(1), 1);
+        assertEquals(10, population.writeBack(city).size());
+        assertEquals(HealthStatus.INFECTED, city.getResidents().get(0).getHealthStatus());
+    }
+
+    @Test
+    void testWithParametersSeedsAndLeavesTheScenarioAlone() {
+        CityPopulation scenario = CityPopulation.of(cityWith(10), 1);
+        CityPopulation variant = scenario.withParameters(3, 4);
+        assertEquals(4, variant.getInfectedCount());
+        assertEquals(6, variant.getSusceptibleCount());
+        assertEquals(HealthStatus.INFECTED, variant.getHealthStatus(3));
+        assertEquals(HealthStatus.SUSCEPTIBLE, variant.getHealthStatus(4));
+
+        variant.recover(2);
+        assertEquals(4, variant.getInfectedCount());
+        variant.recover(3); // Infected on day 1 with a recovery time of 3
+        assertEquals(0, variant.getInfectedCount());
+        assertEquals(0, scenario.getInfectedCount());
+        assertEquals(10, scenario.getSusceptibleCount());
+    }
+}
@@ -0,0 +1,43 @@
+package service.engine;
+
+import service.Graph;
+import org.junit.jupiter.api.*;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CouplingOperatorTest {
+
+    @Test
+    void testImportedPressureIsWeightedSumOfNeighbours() {
+        Graph graph = new Graph();
+        for (String city : List.of("Dhaka", "Sylhet", "Khulna", "Elsewhere")) {
+            graph.addVertex(city);
+        }
+        graph.addEdge("Dhaka", "Sylhet", 0.5);
+        graph.addEdge("Dhaka", "Khulna", 0.25);
+        graph.addEdge("Sylhet", "Dhaka", 0.5);
+        graph.addEdge("Khulna", "Elsewhere", 1.0); // Not part of the simulated cities
+
+        CouplingOperator coupling = new CouplingOperator(graph, List.of("Dhaka", "Sylhet", "Khulna"));
+        assertEquals(3, coupling.edgeCount());
+
+        double[] imported = new double[3];
+        coupling.multiply(new double[]{0.1, 0.2, 0.4}, imported);
+        assertEquals(0.5 * 0.2 + 0.25 * 0.4, imported[0], 1e-12);
+        assertEquals(0.5 * 0.1, imported[1], 1e-12);
+        assertEquals(0.0, imported[2], 1e-12);
+
+        // Dhaka's infections reach Sylhet; Sylhet's and Khulna's reach Dhaka
+        assertEquals(1, coupling.firstImporter(1) - coupling.firstImporter(0));
+        assertEquals(1, coupling.importer(coupling.firstImporter(0)));
+        assertEquals(0, coupling.importer(coupling.firstImporter(1)));
+        assertEquals(0, coupling.importer(coupling.firstImporter(2)));
+        assertEquals(3, coupling.firstImporter(3));
+    }
+
+    @Test
+    void testCombineTreatsSourcesAsIndependent() {
+        assertEquals(0.1, CouplingOperator.combine(0.1, 0.0), 1e-12);
+        assertEquals(1 - 0.9 * 0.8, CouplingOperator.combine(0.1, 0.2), 1e-12);
+    }
+}
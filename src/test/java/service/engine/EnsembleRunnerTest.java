@@ -0,0 +1,54 @@
+package service.engine;
+
+import domain.city.City;
+import domain.person.Person;
+import domain.utils.QuantileSketch;
+import domain.utils.RandomStreams;
+import org.junit.jupiter.api.*;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnsembleRunnerTest {
+    private static final List<String> CITY_NAMES = List.of("Dhaka", "Sylhet");
+
+    private static PopulationEngine scenario() {
+        List<City> cities = new ArrayList<>();
+        for (String name : CITY_NAMES) {
+            City city = new City(name, 10.0);
+            for (int i = 0; i < 200; i++) {
+                Person person = new Person("P" + i, i % 90, name);
+                if (i < 3) {
+                    person.infect();
+                }
+                city.addResident(person);
+            }
+            cities.add(city);
+        }
+        return new PopulationEngine(cities, new RandomStreams(7), 1);
+    }
+
+    // Every reported quantile, day by day and city by city
+    private static List<Double> run(PopulationEngine scenario, int parallelism) {
+        List<Double> quantiles = new ArrayList<>();
+        new EnsembleRunner(scenario, CITY_NAMES, null, 0.05, new RandomStreams(11), parallelism)
+                .run(9, 1, 15, (day, cityNames, infected) -> {
+                    for (QuantileSketch sketch : infected) {
+                        assertEquals(9, sketch.count());
+                        for (double q : EnsembleRunner.QUANTILES) {
+                            quantiles.add(sketch.quantile(q));
+                        }
+                    }
+                });
+        return quantiles;
+    }
+
+    @Test
+    void testResultsDoNotDependOnParallelism() {
+        PopulationEngine scenario = scenario();
+        List<Double> sequential = run(scenario, 1);
+        assertEquals(15 * CITY_NAMES.size() * EnsembleRunner.QUANTILES.length, sequential.size());
+        assertTrue(sequential.stream().anyMatch(infected -> infected > 10)); // The outbreak actually spreads
+        assertEquals(sequential, run(scenario, 4)); // Also shows the scenario itself was not changed by the first run
+    }
+}
@@ -0,0 +1,54 @@
+package service.engine;
+
+import domain.city.City;
+import domain.person.HealthStatus;
+import domain.person.Person;
+import org.junit.jupiter.api.*;
+import java.lang.foreign.Arena;
+import java.util.SplittableRandom;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapCityPopulationTest {
+
+    private City cityWith(int residents) {
+        City city = new City("Dhaka", 10.0);
+        for (int i = 0; i < residents; i++) {
+            city.addResident(new Person("P" + i, i % 90, "Dhaka"));
+        }
+        city.getResidents().get(0).infect();
+        return city;
+    }
+
+    @Test
+    void testDaysMatchPersonObjects() {
+        City objects = cityWith(200);
+        City columns = cityWith(200);
+        try (Arena arena = Arena.ofConfined()) {
+            OffHeapCityPopulation population = OffHeapCityPopulation.of(columns, arena);
+            for (int day = 1; day <= 30; day++) {
+                SplittableRandom random = new SplittableRandom(day);
+                double logFailure = Math.log1p(-0.05);
+                long nextInfection = Binomial.nextGap(random, logFailure);
+                long susceptibleSeen = 0;
+                for (Person person : objects.getResidents()) {
+                    if (person.getHealthStatus() == HealthStatus.SUSCEPTIBLE && ++susceptibleSeen == nextInfection) {
+                        person.infect();
+                        nextInfection += Binomial.nextGap(random, logFailure);
+                    }
+                }
+                objects.getResidents().forEach(Person::updateHealthStatus);
+                population.spread(0.05, new SplittableRandom(day));
+                population.recover(false);
+                for (int i = 0; i < 200; i++) {
+                    Person person = objects.getResidents().get(i);
+                    assertEquals(person.getHealthStatus(), population.getHealthStatus(i));
+                    assertEquals(person.getInfectionDuration(), population.getInfectionDuration(i));
+                }
+            }
+            population.writeBack(columns);
+            for (int i = 0; i < 200; i++) {
+                assertEquals(objects.getResidents().get(i).getHealthStatus(), columns.getResidents().get(i).getHealthStatus());
+            }
+        }
+    }
+}
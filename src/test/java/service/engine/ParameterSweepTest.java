@@ -0,0 +1,88 @@
+package service.engine;
+
+import domain.city.City;
+import domain.person.Person;
+import domain.utils.RandomStreams;
+import org.junit.jupiter.api.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParameterSweepTest {
+    private static final List<String> CITY_NAMES = List.of("Dhaka", "Sylhet");
+    private static final File TEST_DIR = new File(System.getProperty("java.io.tmpdir"), "test_sweep");
+
+    @AfterEach
+    void tearDown() {
+        new File(TEST_DIR, "sweep.csv").delete();
+        TEST_DIR.delete();
+    }
+
+    private static PopulationEngine scenario() {
+        List<City> cities = new ArrayList<>();
+        for (String name : CITY_NAMES) {
+            City city = new City(name, 10.0);
+            for (int i = 0; i < 150; i++) {
+                city.addResident(new Person("P" + i, i % 90, name));
+            }
+            cities.add(city);
+        }
+        return new PopulationEngine(cities, new RandomStreams(3), 1);
+    }
+
+    private static SweepResults run(PopulationEngine scenario, int parallelism) {
+        return new ParameterSweep(scenario, CITY_NAMES, null, new RandomStreams(5), parallelism)
+                .run(ParameterSweep.range(0.05, 0.15, 0.05), ParameterSweep.range(7, 14, 7), ParameterSweep.range(1, 5, 4), 1, 20);
+    }
+
+    @Test
+    void testRanges() {
+        double[] rates = ParameterSweep.range(0.05, 0.3, 0.05);
+        assertEquals(6, rates.length);
+        assertEquals(0.3, rates[5], 1e-12);
+        assertArrayEquals(new int[]{7, 14, 21}, ParameterSweep.range(7, 21, 7));
+        assertArrayEquals(new int[]{1, 4}, ParameterSweep.range(1, 5, 3));
+        assertThrows(IllegalArgumentException.class, () -> ParameterSweep.range(0.3, 0.05, 0.05));
+        assertThrows(IllegalArgumentException.class, () -> ParameterSweep.range(1, 5, 0));
+    }
+
+    @Test
+    void testEveryCombinationRunsInOrder() {
+        SweepResults results = run(scenario(), 1);
+        assertEquals(3 * 2 * 2, results.size());
+        assertEquals(0.05, results.getInfectionRate(0), 1e-12);
+        assertEquals(14, results.getRecoveryTime(2));
+        assertEquals(5, results.getInitialInfected(1));
+        for (int c = 0; c < results.size(); c++) {
+            assertEquals(300, results.getPopulation(c));
+            assertTrue(results.getPeakInfected(c) >= 2L * results.getInitialInfected(c));
+        }
+    }
+
+    @Test
+    void testResultsDoNotDependOnParallelism() {
+        PopulationEngine scenario = scenario();
+        SweepResults sequential = run(scenario, 1);
+        SweepResults parallel = run(scenario, 4);
+        for (int c = 0; c < sequential.size(); c++) {
+            assertEquals(sequential.getPeakInfected(c), parallel.getPeakInfected(c));
+            assertEquals(sequential.getPeakDay(c), parallel.getPeakDay(c));
+            assertEquals(sequential.getFinalInfected(c), parallel.getFinalInfected(c));
+            assertEquals(sequential.getFinalRecovered(c), parallel.getFinalRecovered(c));
+        }
+    }
+
+    @Test
+    void testCsvHasFixedPrecisionRates() throws IOException {
+        Path csv = new File(TEST_DIR, "sweep.csv").toPath(); // The directory does not exist yet
+        run(scenario(), 1).writeCsv(csv);
+        List<String> lines = Files.readAllLines(csv);
+        assertEquals(13, lines.size());
+        assertTrue(lines.get(1).startsWith("0.050000,7,1,"));
+        assertTrue(lines.get(9).startsWith("0.150000,7,1,")); // 0.05 + 2 * 0.05 is 0.15000000000000002
+    }
+}
@@ -0,0 +1,63 @@
+package service.engine;
+
+import domain.city.City;
+import domain.person.HealthStatus;
+import domain.person.Person;
+import org.junit.jupiter.api.*;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecoveryWheelTest {
+
+    private static int[] due(RecoveryWheel wheel, int day) {
+        return Arrays.copyOf(wheel.dueAgents(day), wheel.dueCount(day));
+    }
+
+    @Test
+    void testSlotsAreReusedAfterTheHorizon() {
+        RecoveryWheel wheel = new RecoveryWheel(3); // 4 slots
+        wheel.schedule(1, 10);
+        wheel.schedule(1, 11);
+        wheel.schedule(3, 12);
+        assertArrayEquals(new int[]{10, 11}, due(wheel, 1));
+        wheel.clear(1);
+
+        wheel.schedule(5, 13); // Same slot as day 1
+        assertArrayEquals(new int[]{13}, due(wheel, 5));
+        assertArrayEquals(new int[]{12}, due(wheel, 3));
+        assertArrayEquals(new int[]{12}, due(wheel, 7));
+    }
+
+    @Test
+    void testCopyIsIndependent() {
+        RecoveryWheel wheel = new RecoveryWheel(2);
+        wheel.schedule(0, 1);
+        RecoveryWheel copy = wheel.copy();
+        copy.schedule(0, 2);
+        wheel.clear(0);
+        assertEquals(0, wheel.dueCount(0));
+        assertArrayEquals(new int[]{1, 2}, due(copy, 0));
+    }
+
+    @Test
+    void testCityNotTickedCatchesUpOverSeveralTurns() {
+        City city = new City("Dhaka", 10.0);
+        for (int i = 0; i < 20; i++) {
+            city.addResident(new Person("P" + i, i * 5, "Dhaka"));
+        }
+        CityPopulation population = CityPopulation.of(city, 1);
+        int maxRecoveryTime = city.getResidents().stream().mapToInt(Person::getRecoveryTime).max().orElseThrow();
+        population.spread(1.0, new Random(1), 1);
+        assertEquals(20, population.getInfectedCount());
+
+        // Not ticked for more than two turns of the wheel
+        int nextTick = 2 * (maxRecoveryTime + 1) + 2;
+        assertEquals(0, population.spread(0.0, new Random(1), nextTick));
+        assertEquals(0, population.getInfectedCount());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(HealthStatus.RECOVERED, population.getHealthStatus(i));
+        }
+        assertEquals(0, population.recover(nextTick));
+    }
+}
@@ -0,0 +1,43 @@
+package service.engine;
+
+import domain.city.City;
+import domain.person.HealthStatus;
+import domain.person.Person;
+
+import java.lang.foreign.Arena;
+import java.util.Random;
+
+// Times the scalar and vectorized recovery steps over the same agents.
+// Run with --add-modules jdk.incubator.vector; pass the number of agents as the first argument.
+public class VectorRecoveryBenchmark {
+    public static void main(String[] args) {
+        int agents = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int rounds = 200;
+        Random random = new Random(1);
+        City city = new City("Bench", 1.0);
+        for (int i = 0; i < agents; i++) {
+            Person person = new Person("P" + i, 30, "Bench");
+            person.setRecoveryTime(Short.MAX_VALUE); // Nobody recovers, so every round does the same work
+            if (random.nextBoolean()) {
+                person.setHealthStatus(HealthStatus.INFECTED);
+                person.setInfectionDuration(1);
+            }
+            city.addResident(person);
+        }
+        try (Arena arena = Arena.ofConfined()) {
+            OffHeapCityPopulation population = OffHeapCityPopulation.of(city, arena);
+            city = null;
+            for (boolean vectorized : new boolean[]{false, true, false, true}) {
+                for (int round = 0; round < rounds / 4; round++) {
+                    population.recover(vectorized); // Warm-up
+                }
+                long start = System.nanoTime();
+                for (int round = 0; round < rounds; round++) {
+                    population.recover(vectorized);
+                }
+                double perRound = (System.nanoTime() - start) / 1e6 / rounds;
+                System.out.printf("%-10s %8.3f ms per day for %d agents%n", vectorized ? "vectorized" : "scalar", perRound, agents);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package service.engine;
+
+import domain.city.City;
+import domain.person.HealthStatus;
+import domain.person.Person;
+import org.junit.jupiter.api.*;
+import java.lang.foreign.Arena;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorRecoveryTest {
+
+    // Statuses, durations and recovery times at random; the size leaves a tail for the scalar loop
+    private City randomCity(long seed) {
+        Random random = new Random(seed);
+        City city = new City("Dhaka", 10.0);
+        for (int i = 0; i < 1003; i++) {
+            Person person = new Person("P" + i, random.nextInt(90), "Dhaka");
+            person.setRecoveryTime(1 + random.nextInt(20));
+            HealthStatus status = HealthStatus.values()[random.nextInt(3)];
+            person.setHealthStatus(status);
+            person.setInfectionDuration(status == HealthStatus.INFECTED ? 1 + random.nextInt(20) : 0);
+            city.addResident(person);
+        }
+        return city;
+    }
+
+    @Test
+    void testVectorizedRecoveryMatchesScalar() {
+        try (Arena arena = Arena.ofConfined()) {
+            OffHeapCityPopulation scalar = OffHeapCityPopulation.of(randomCity(7), arena);
+            OffHeapCityPopulation vectorized = OffHeapCityPopulation.of(randomCity(7), arena);
+            for (int day = 0; day < 25; day++) {
+                assertEquals(scalar.recover(false), vectorized.recover(true));
+                assertEquals(scalar.getInfectedCount(), vectorized.getInfectedCount());
+                for (int i = 0; i < scalar.size(); i++) {
+                    assertEquals(scalar.getHealthStatus(i), vectorized.getHealthStatus(i));
+                    assertEquals(scalar.getInfectionDuration(i), vectorized.getInfectionDuration(i));
+                }
+            }
+            assertEquals(0, vectorized.getInfectedCount());
+        }
+    }
+}